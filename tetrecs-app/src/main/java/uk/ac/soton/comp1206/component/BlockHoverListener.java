@@ -1,6 +1,4 @@
-package uk.ac.soton.comp1206.event;
-
-import uk.ac.soton.comp1206.component.GameBlock;
+package uk.ac.soton.comp1206.component;
 
 /**
  * The Block Hovered listener is used to handle the event when the mouse is hovering over a block in
@@ -1,14 +1,11 @@
 package uk.ac.soton.comp1206.component;
 
-import java.util.HashSet;
 import javafx.scene.input.MouseButton;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.GridPane;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import uk.ac.soton.comp1206.event.BlockClickedListener;
-import uk.ac.soton.comp1206.event.BlockHoverListener;
-import uk.ac.soton.comp1206.event.RightClickedListener;
+import uk.ac.soton.comp1206.game.Game;
 import uk.ac.soton.comp1206.game.GamePiece;
 import uk.ac.soton.comp1206.game.Grid;
 
@@ -29,6 +26,10 @@ public class GameBoard extends GridPane {
    * The grid this GameBoard represents
    */
   final Grid grid;
+  /**
+   * The properties mirroring the grid, which the blocks are bound to
+   */
+  private final ObservableGrid observableGrid;
   /**
    * Number of columns in the board
    */
@@ -70,6 +71,27 @@ public class GameBoard extends GridPane {
     this.width = width;
     this.height = height;
     this.grid = grid;
+    this.observableGrid = new ObservableGrid(grid);
+
+    //Build the GameBoard
+    build();
+  }
+
+  /**
+   * Create a new GameBoard showing the grid of a game, with a visual width and height. Changes to
+   * the grid arrive through the game, with the rest of its events.
+   *
+   * @param game   linked game
+   * @param width  the visual width
+   * @param height the visual height
+   */
+  public GameBoard(Game game, double width, double height) {
+    this.cols = game.getGrid().getCols();
+    this.rows = game.getGrid().getRows();
+    this.width = width;
+    this.height = height;
+    this.grid = game.getGrid();
+    this.observableGrid = new ObservableGrid(game);
 
     //Build the GameBoard
     build();
@@ -90,6 +112,7 @@ public class GameBoard extends GridPane {
     this.width = width;
     this.height = height;
     this.grid = new Grid(cols, rows);
+    this.observableGrid = new ObservableGrid(grid);
 
     //Build the GameBoard
     build();
@@ -147,7 +170,7 @@ public class GameBoard extends GridPane {
     blocks[x][y] = block;
 
     //Link the GameBlock component to the corresponding value in the Grid
-    block.bind(grid.getGridProperty(x, y));
+    block.bind(observableGrid.getGridProperty(x, y));
 
     //Add a mouse click handler to the block to trigger GameBoard blockClicked method
     block.setOnMouseClicked((e) -> blockClicked(e, block));
@@ -159,12 +182,18 @@ public class GameBoard extends GridPane {
 
   /**
    * fade out the entire row or column that is cleared
+   *
+   * @param cleared one bitmask per row, where bit x is set if the block at x is cleared
    */
-  public void fadeOut(HashSet<GameBlockCoordinate> coordinates, GamePiece nextPiece, GameBlock currentBlock) {
+  public void fadeOut(long[] cleared, GamePiece nextPiece, GameBlock currentBlock) {
     logger.info("Blocks cleared");
     //Loop over the blocks that are assigned to be cleared and fade them out
-    for (GameBlockCoordinate cord : coordinates) {
-      getBlock(cord.getX(), cord.getY()).fadeOut(nextPiece, currentBlock);
+    for (int y = 0; y < rows; y++) {
+      long row = cleared[y];
+      while (row != 0) {
+        getBlock(Long.numberOfTrailingZeros(row), y).fadeOut(nextPiece, currentBlock);
+        row &= row - 1;
+      }
     }
   }
 
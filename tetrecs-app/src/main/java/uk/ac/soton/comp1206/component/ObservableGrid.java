@@ -0,0 +1,100 @@
+package uk.ac.soton.comp1206.component;
+
+import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.SimpleIntegerProperty;
+import uk.ac.soton.comp1206.game.Game;
+import uk.ac.soton.comp1206.game.Grid;
+
+/**
+ * The ObservableGrid is the view of a Grid that the UI binds to. It holds a SimpleIntegerProperty
+ * for every block and mirrors each change made to the Grid into the matching property.
+ * <p>
+ * The Grid itself only holds primitive state, so game logic never pays for property updates that
+ * nothing is displaying.
+ */
+public class ObservableGrid {
+
+  /**
+   * The grid this view mirrors
+   */
+  private final Grid grid;
+
+  /**
+   * A 2D arrow with rows and columns of SimpleIntegerProperties, one for each block in the grid
+   */
+  private final SimpleIntegerProperty[][] properties;
+
+  /**
+   * Create a new ObservableGrid for the given grid and start listening to it for changes
+   *
+   * @param grid grid to mirror
+   */
+  public ObservableGrid(Grid grid) {
+    this.grid = grid;
+    this.properties = makeProperties(grid);
+
+    //Update the properties whenever the grid changes
+    grid.setGridChangedListener(this::gridChanged);
+  }
+
+  /**
+   * Create a new ObservableGrid for the grid of a game and start listening to the game for changes,
+   * so they arrive with the rest of the game's events rather than on the thread changing the grid
+   *
+   * @param game game whose grid to mirror
+   */
+  public ObservableGrid(Game game) {
+    this.grid = game.getGrid();
+    this.properties = makeProperties(grid);
+
+    //Update the properties whenever the game publishes a change to the grid
+    game.setGridChangedListener(this::gridChanged);
+  }
+
+  /**
+   * Make a SimpleIntegerProperty holding the current value of every block in a grid
+   *
+   * @param grid the grid
+   * @return the properties, by column then row
+   */
+  private static SimpleIntegerProperty[][] makeProperties(Grid grid) {
+    var properties = new SimpleIntegerProperty[grid.getCols()][grid.getRows()];
+    for (var y = 0; y < grid.getRows(); y++) {
+      for (var x = 0; x < grid.getCols(); x++) {
+        properties[x][y] = new SimpleIntegerProperty(grid.get(x, y));
+      }
+    }
+    return properties;
+  }
+
+  /**
+   * Update the property of a block that has changed in the grid
+   *
+   * @param x     column
+   * @param y     row
+   * @param value the new value
+   */
+  private void gridChanged(int x, int y, int value) {
+    properties[x][y].set(value);
+  }
+
+  /**
+   * Get the Integer property of the block at a given row and column index. Can be used for binding.
+   *
+   * @param x column
+   * @param y row
+   * @return the IntegerProperty at the given x and y in the grid
+   */
+  public IntegerProperty getGridProperty(int x, int y) {
+    return properties[x][y];
+  }
+
+  /**
+   * Get the grid this view mirrors
+   *
+   * @return the grid
+   */
+  public Grid getGrid() {
+    return grid;
+  }
+}
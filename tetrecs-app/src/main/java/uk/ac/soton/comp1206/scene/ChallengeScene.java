@@ -0,0 +1,728 @@
+package uk.ac.soton.comp1206.scene;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.SimpleIntegerProperty;
+import javafx.beans.value.ChangeListener;
+import javafx.concurrent.Task;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.StackPane;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Rectangle;
+import javafx.scene.text.Text;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.ai.MonteCarloPlayer;
+import uk.ac.soton.comp1206.ai.Move;
+import uk.ac.soton.comp1206.component.GameBlock;
+import uk.ac.soton.comp1206.component.GameBoard;
+import uk.ac.soton.comp1206.component.PieceBoard;
+import uk.ac.soton.comp1206.event.NextPieceListener;
+import uk.ac.soton.comp1206.game.Game;
+import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.game.GameSnapshot;
+import uk.ac.soton.comp1206.game.Zobrist;
+import uk.ac.soton.comp1206.ui.GamePane;
+import uk.ac.soton.comp1206.ui.GameWindow;
+import uk.ac.soton.comp1206.ui.Multimedia;
+
+/**
+ * The Single Player challenge scene. Holds the UI for the single player challenge mode in the
+ * game.
+ */
+public class ChallengeScene extends BaseScene {
+
+  private static final Logger logger = LogManager.getLogger(MenuScene.class);
+
+  /**
+   * Iterations of the search for a hint
+   */
+  private static final int HINT_ITERATIONS = 20000;
+
+  /**
+   * Number of hints remembered
+   */
+  private static final int HINT_CACHE = 64;
+
+  /**
+   * Game that handles main logic
+   */
+  protected Game game;
+
+  /**
+   * GameBoard that holds the blocks
+   */
+  protected GameBoard board;
+
+  /**
+   * Initialising the pieceListener
+   */
+  private NextPieceListener pieceListener;
+
+  /**
+   * Initialising the followingPieceListener
+   */
+  private NextPieceListener followingPieceListener;
+
+  /**
+   * Rectangle that is the UI timer
+   */
+  private Rectangle timer;
+
+  /**
+   * Redraws the UI timer every frame from the time the game has left
+   */
+  private AnimationTimer timerBar;
+
+  /**
+   * The snapshot the piece highlight was last drawn for
+   */
+  private GameSnapshot highlighted;
+
+  /**
+   * Pauses the game while the window is in the background
+   */
+  private final ChangeListener<Boolean> focusListener = (observable, was, focused) -> {
+    if (focused) {
+      game.submit(game::resume);
+    } else {
+      game.submit(game::pause);
+    }
+  };
+
+  /**
+   * Text that holds the highScore of the local scores
+   */
+  private Text highScore;
+
+  /**
+   * IntegerProperty of the score, updated from the game
+   */
+  private final IntegerProperty score = new SimpleIntegerProperty(0);
+
+  /**
+   * IntegerProperty of the level, updated from the game
+   */
+  private final IntegerProperty level = new SimpleIntegerProperty(0);
+
+  /**
+   * IntegerProperty of the lives, updated from the game
+   */
+  private final IntegerProperty lives = new SimpleIntegerProperty(3);
+
+  /**
+   * IntegerProperty of the multiplier, updated from the game
+   */
+  private final IntegerProperty multiplier = new SimpleIntegerProperty(1);
+
+  /**
+   * Thread the hint search runs on, so it never holds up the UI
+   */
+  private final ExecutorService hintExecutor = Executors.newSingleThreadExecutor(runnable -> {
+    var thread = new Thread(runnable, "Hint");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  /**
+   * Hints found so far, by the board, pieces and multiplier they were found for. Only used on the FX
+   * thread
+   */
+  private final Map<Long, Move> hints = new LinkedHashMap<>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Long, Move> eldest) {
+      return size() > HINT_CACHE;
+    }
+  };
+
+  /**
+   * The hint search running, or null if there is none
+   */
+  private volatile HintTask hintTask;
+
+  /**
+   * Create a new Single Player challenge scene
+   *
+   * @param gameWindow the Game Window
+   */
+  public ChallengeScene(GameWindow gameWindow) {
+    super(gameWindow);
+    logger.info("Creating Challenge Scene");
+    ScoresScene.makeDefaultScore("scores.txt");
+  }
+
+  /**
+   * Build the Challenge window
+   */
+  @Override
+  public void build() {
+    logger.info("Building " + this.getClass().getName());
+
+    //Setting of the game
+    setupGame();
+
+    root = new GamePane(gameWindow.getWidth(), gameWindow.getHeight());
+
+    //StackPane (Place the borderpane atop the background)
+    var challengePane = new StackPane();
+    challengePane.setMaxWidth(gameWindow.getWidth());
+    challengePane.setMaxHeight(gameWindow.getHeight());
+    challengePane.getStyleClass().add("challenge-background");
+    root.getChildren().add(challengePane);
+
+    //Border Pane (Add the majority of nodes to this)
+    var mainPane = new BorderPane();
+    challengePane.getChildren().add(mainPane);
+
+    //Top Pane title
+    var title = new Text("Challenge Mode");
+    BorderPane.setAlignment(title, Pos.BOTTOM_CENTER);
+    title.getStyleClass().add("title");
+
+    var filler = new HBox(title);
+    filler.setAlignment(Pos.BOTTOM_CENTER);
+    filler.setPadding(new Insets(30));
+    mainPane.setTop(filler);
+
+    //Right Pane (Board and HBox)
+    var hBox = new HBox(5);
+    mainPane.setRight(hBox);
+
+    //VBox
+    VBox vBox = new VBox(5);
+    vBox.setAlignment(Pos.TOP_CENTER);
+    hBox.getChildren().add(vBox);
+
+    //High Score
+    var highScoreText = new Text("High Score");
+    highScoreText.getStyleClass().add("heading");
+    vBox.getChildren().add(highScoreText);
+
+    //HighScore Display
+    highScore = new Text(String.valueOf(getHighScore()));
+    highScore.getStyleClass().add("score");
+    vBox.getChildren().add(highScore);
+
+    //Multiplier
+    var multiplierText = new Text("Multiplier");
+    multiplierText.getStyleClass().add("heading");
+    vBox.getChildren().add(multiplierText);
+
+    //Multiplier Display
+    var multiplierDisplay = new Text(String.valueOf(multiplier.get()));
+    multiplierDisplay.textProperty().bind(multiplier.asString());
+    multiplierDisplay.getStyleClass().add("level");
+    vBox.getChildren().add(multiplierDisplay);
+
+    //Board
+    board = new GameBoard(game, gameWindow.getWidth() / 2.0, gameWindow.getWidth() / 2.0);
+    BorderPane.setAlignment(board, Pos.TOP_CENTER);
+    board.setPadding(new Insets(0, 50, 0, 0));
+    hBox.getChildren().add(board);
+
+    //Handle block on game board grid being clicked
+    board.setOnBlockClick(this::blockClicked);
+    board.setOnRightClicked(this::rightClicked);
+
+    //When the mouse is hovering over a block
+    board.setOnBlockInHover(this::blockHovered);
+
+    //Keep the stats displayed up to date with the game
+    game.setStatsListener((newScore, newLevel, newLives, newMultiplier) -> {
+      score.set(newScore);
+      level.set(newLevel);
+      lives.set(newLives);
+      multiplier.set(newMultiplier);
+
+      //Change the highScore to the game score if it is greater than the current highScore
+      if (newScore > Integer.parseInt(highScore.getText())) {
+        highScore.setText(String.valueOf(newScore));
+      }
+    });
+
+    //Play the sounds of the game
+    game.setSoundListener(Multimedia::playSound);
+
+    //Clear the row or column with a fade
+    game.setLineClearedListener((blocks) -> {
+      var snapshot = game.getSnapshot();
+      board.fadeOut(blocks, snapshot.getCurrentPiece(),
+          board.getBlock(snapshot.getAimX(), snapshot.getAimY()));
+    });
+
+    //Bottom Pane (Progress bar)
+    timer = new Rectangle(gameWindow.getWidth(), 25, Color.GREEN);
+    mainPane.setBottom(timer);
+    //Draw the bar from the game's own deadline every frame, so it cannot drift from the countdown,
+    //and the piece highlight whenever the game has changed since the last frame
+    timerBar = new AnimationTimer() {
+      @Override
+      public void handle(long now) {
+        var snapshot = game.getSnapshot();
+        if (snapshot != highlighted && snapshot != null && snapshot.getCurrentPiece() != null) {
+          highlighted = snapshot;
+          pieceHighlight(snapshot);
+        }
+
+        double countdown = game.getCountdownTime();
+        double left = countdown > 0 ? game.getRemainingTime() / countdown : 0;
+        timer.setWidth(gameWindow.getWidth() * left);
+
+        //Green when full, yellow half way and red at the end
+        timer.setFill(left > 0.5
+            ? Color.GREEN.interpolate(Color.YELLOW, (1 - left) * 2)
+            : Color.YELLOW.interpolate(Color.RED, (0.5 - left) * 2));
+      }
+    };
+
+    //Inform that the game is over
+    game.setEndGameListener(reason -> {
+      logger.info("Game over: {}", reason);
+      //Clean up the loose ends
+      cleanUp();
+      gameWindow.startScore(game);
+      logger.info("Score: " + game.getScoreProperty());
+    });
+
+    //Left Pane (VBox and stats)
+    makeVBox(mainPane);
+  }
+
+
+  /**
+   * Class to make the vBox that holds all the stats outside build class
+   *
+   * @param mainPane Border Pane in build class
+   */
+  private void makeVBox(BorderPane mainPane) {
+    logger.info("Making stats box");
+    VBox vBox = new VBox(5);
+    mainPane.setLeft(vBox);
+    vBox.setPadding(new Insets(0, 0, 0, 50));
+    vBox.setAlignment(Pos.TOP_CENTER);
+
+    //Score
+    var scoreText = new Text("Score");
+    scoreText.getStyleClass().add("heading");
+    vBox.getChildren().add(scoreText);
+
+    //Score Display
+    var scoreDisplay = new Text(String.valueOf(score.get()));
+    scoreDisplay.textProperty().bind(score.asString());
+    scoreDisplay.getStyleClass().add("score");
+    vBox.getChildren().add(scoreDisplay);
+
+    //Level
+    var levelText = new Text("Level");
+    levelText.getStyleClass().add("heading");
+    vBox.getChildren().add(levelText);
+
+    //Level Display
+    var levelDisplay = new Text(String.valueOf(level.get()));
+    levelDisplay.textProperty().bind(level.asString());
+    levelDisplay.getStyleClass().add("level");
+    vBox.getChildren().add(levelDisplay);
+
+    //Lives
+    var livesText = new Text("Lives Left");
+    livesText.getStyleClass().add("heading");
+    vBox.getChildren().add(livesText);
+
+    //Lives Display
+    var livesDisplay = new Text(String.valueOf(lives.get()));
+    livesDisplay.textProperty().bind(lives.asString());
+    livesDisplay.getStyleClass().add("lives3");
+    vBox.getChildren().add(livesDisplay);
+
+    //Upcoming Shape
+    var currentShape = new Text("Current Shape");
+    currentShape.getStyleClass().add("heading");
+    vBox.getChildren().add(currentShape);
+
+    var stackPane = new StackPane();
+    stackPane.setAlignment(Pos.CENTER);
+    vBox.getChildren().add(stackPane);
+
+    //Upcoming shape Display
+    var upcomingPiece = new PieceBoard(3, 3, 100, 100);
+    upcomingPiece.setOnBlockClick(this::rightClicked);
+    pieceListener = piece -> {
+      //The pieces have changed or been turned, so stop any search still running. Hints already
+      //found are kept, as they do not depend on which way the pieces are turned
+      cancelHint();
+      upcomingPiece.displayPiece(piece);
+    };
+    game.setNextListener(pieceListener);
+    stackPane.getChildren().add(upcomingPiece);
+    upcomingPiece.displayCircle(50, 50, stackPane);
+
+    //Next Shape
+    var nextShape = new Text("Next Shape");
+    nextShape.getStyleClass().add("heading");
+    vBox.getChildren().add(nextShape);
+
+    //Next Shape Display
+    var followingPiece = new PieceBoard(3, 3, 70, 70);
+
+    followingPieceListener = followingPiece::displayPiece;
+    game.setFollowingPieceListener(followingPieceListener);
+    vBox.getChildren().add(followingPiece);
+  }
+
+  /**
+   * Get the highScore from the score file
+   *
+   * @return value of the highScore
+   */
+  private int getHighScore() {
+    //Set the highScore to 0 to get the new one
+    int highScore = 0;
+
+    //Set the buffer to null
+    BufferedReader br = null;
+    try {
+      //Read file
+      br = new BufferedReader(new FileReader("scores.txt"));
+
+      //Get first line
+      String line = br.readLine();
+
+      //Split the line by :
+      String[] split = line.split(":");
+
+      //Get the second part that is value
+      highScore = Integer.parseInt(split[1].trim());
+
+      logger.info("High Score is: " + highScore);
+
+    } catch (IOException e) {
+      //Catch if the file does not exist
+      e.printStackTrace();
+      logger.info("File does not exist");
+    } finally {
+      //Close the buffer reader
+      try {
+        if (br != null) {
+          br.close();
+        }
+      } catch (Exception e) {
+        e.printStackTrace();
+        logger.info("Could not close Buffer");
+      }
+    }
+
+    //Return highScore
+    return highScore;
+  }
+
+  /**
+   * Handle when a block is clicked
+   *
+   * @param gameBlock the Game Block that was clocked
+   */
+  private void blockClicked(GameBlock gameBlock) {
+    logger.info("Block clicked");
+    //Place block at position of the block
+    int x = gameBlock.getX();
+    int y = gameBlock.getY();
+    game.submit(() -> game.placeBlock(x, y));
+  }
+
+  /**
+   * Rotate the current piece 90 degrees in the UI
+   *
+   * @param gameBlock piece to rotate
+   */
+  private void rightClicked(GameBlock gameBlock) {
+    //Rotate the piece
+    game.submit(() -> game.rotateCurrentPiece(1));
+    logger.info("Piece rotated");
+  }
+
+  /**
+   * Hover over by mouse or keys to focus
+   *
+   * @param gameBlock block that is hovered
+   */
+  private void blockHovered(GameBlock gameBlock) {
+    logger.info("Touching block: {}, {}", gameBlock.getX(), gameBlock.getY());
+    int x = gameBlock.getX();
+    int y = gameBlock.getY();
+    game.submit(() -> {
+      game.setAimX(x);
+      game.setAimY(y);
+    });
+  }
+
+  /**
+   * Show a highlight of the current piece on the gameBoard UI
+   *
+   * @param snapshot state of the game to show
+   */
+  private void pieceHighlight(GameSnapshot snapshot) {
+    logger.info("Showing current piece highlight");
+
+    //Get the currentBlock
+    GameBlock currentBlock = board.getBlock(snapshot.getAimX(), snapshot.getAimY());
+
+    //Update the gameBoard to show a highlight of the gamePiece
+    for (GameBlock[] rowBlock : board.getBlocks()) {
+      for (GameBlock block : rowBlock) {
+        //Make a highlight of the current piece at the current block
+        block.paintHighlight(snapshot.getCurrentPiece(), currentBlock);
+      }
+    }
+  }
+
+  /**
+   * Setup the game object and model
+   */
+  public void setupGame() {
+    logger.info("Starting a new challenge");
+
+    //Start new game
+    game = new Game(5, 5);
+
+    //Every change is made on the game's own thread, and its events come back to the FX thread a
+    //batch at a time
+    game.setPublisher(Platform::runLater);
+  }
+
+  /**
+   * Clean up the loose ends
+   */
+  private void cleanUp() {
+    //Make listeners the null
+    pieceListener = null;
+    followingPieceListener = null;
+
+    //Stop searching for hints
+    cancelHint();
+    hintExecutor.shutdownNow();
+
+    //Stop the timer UI
+    timerBar.stop();
+    if (scene.getWindow() != null) {
+      scene.getWindow().focusedProperty().removeListener(focusListener);
+    }
+  }
+
+  /**
+   * Initialise the scene and start the game
+   */
+  @Override
+  public void initialise() {
+    logger.info("Initialising Challenge");
+
+    //Stop and start the music
+    Multimedia.stopAudio();
+    Multimedia.playBackgroundMusic("game.wav");
+
+    //Start the game
+    game.submit(game::start);
+    timerBar.start();
+
+    //Pause the countdown while the window is in the background
+    scene.getWindow().focusedProperty().addListener(focusListener);
+
+    //Handle on key presses
+    scene.setOnKeyPressed(this::handle);
+  }
+
+  /**
+   * Handle the input of keyboard presses
+   *
+   * @param event keyboard input
+   */
+  private void handle(KeyEvent event) {
+    logger.info("Handle key press");
+
+    switch (event.getCode()) {
+      //Leave Scene
+      case ESCAPE -> {
+        logger.info("Game stopped");
+        game.submit(game::stop);
+        cleanUp();
+        gameWindow.startMenu();
+      }
+      //Move piece up
+      case UP, W -> game.submit(() -> game.currentAim(0, -1));
+      //Move piece down
+      case DOWN, S -> game.submit(() -> game.currentAim(0, 1));
+      //Move piece right
+      case RIGHT, D -> game.submit(() -> game.currentAim(1, 0));
+      //Move piece left
+      case LEFT, A -> game.submit(() -> game.currentAim(-1, 0));
+      //Place piece where it is aimed when the command runs
+      case ENTER, X -> game.submit(() -> game.placeBlock(game.getAimX(), game.getAimY()));
+      //Rotate piece 90 degrees
+      case Q, Z, OPEN_BRACKET -> game.submit(() -> game.rotateCurrentPiece(3));
+      //Rotate piece 270 degrees
+      case E, C, CLOSE_BRACKET -> game.submit(() -> game.rotateCurrentPiece(1));
+      //Swap piece
+      case SPACE, R -> game.submit(game::swapCurrentPiece);
+      //Show the best move
+      case H -> showHint();
+    }
+  }
+
+  /**
+   * Show the best move for the current state of the game. A hint already found for the state is
+   * shown straight away, otherwise one is searched for off the FX thread and shown when found
+   */
+  private void showHint() {
+    var snapshot = game.getSnapshot();
+    long key = hintKey(snapshot);
+
+    Move known = hints.get(key);
+    if (known != null) {
+      paintHint(known, snapshot);
+      return;
+    }
+
+    //Already searching for this state
+    var running = hintTask;
+    if (running != null && running.key == key) {
+      return;
+    }
+    cancelHint();
+
+    logger.info("Searching for a hint");
+    var task = new HintTask(snapshot, key);
+    task.setOnSucceeded(event -> {
+      Move move = task.getValue();
+      if (move == null) {
+        return;
+      }
+      hints.put(key, move);
+
+      //Only show the hint if the game is still in the state it was found for
+      var current = game.getSnapshot();
+      if (hintKey(current) == key) {
+        paintHint(move, current);
+      }
+    });
+    hintTask = task;
+    hintExecutor.execute(task);
+  }
+
+  /**
+   * Cancel the hint search, if there is one. Can be called from any thread
+   */
+  private void cancelHint() {
+    var running = hintTask;
+    if (running != null) {
+      hintTask = null;
+      running.cancel();
+    }
+  }
+
+  /**
+   * Get the key a hint is remembered by: the board, the numbers of the pieces and the multiplier.
+   * A move gives the rotation to play the piece in, so the same hint holds however the pieces are
+   * turned, and the keys of the pieces as they are turned are swapped for those of their first
+   * rotation
+   *
+   * @param snapshot state of the game
+   * @return the key of the state
+   */
+  private static long hintKey(GameSnapshot snapshot) {
+    var current = snapshot.getCurrentPiece();
+    var following = snapshot.getFollowingPiece();
+    long board = snapshot.getStateHash() ^ Zobrist.currentKey(current)
+        ^ Zobrist.followingKey(following);
+    return board ^ Zobrist.currentKey(GamePiece.createPiece(current.getPiece()))
+        ^ Zobrist.followingKey(GamePiece.createPiece(following.getPiece()))
+        ^ Zobrist.multiplierKey(snapshot.getMultiplier());
+  }
+
+  /**
+   * Highlight where a move places its piece on the gameBoard UI, in the colour of the piece
+   *
+   * @param move     the move to show
+   * @param snapshot state of the game the move is for
+   */
+  private void paintHint(Move move, GameSnapshot snapshot) {
+    logger.info("Showing hint: {}", move);
+    var piece = move.isSwap() ? snapshot.getFollowingPiece() : snapshot.getCurrentPiece();
+    var placed = GamePiece.createPiece(piece.getPiece(), move.getRotation());
+    GameBlock target = board.getBlock(move.getX(), move.getY());
+
+    for (GameBlock[] rowBlock : board.getBlocks()) {
+      for (GameBlock block : rowBlock) {
+        block.paintHighlight(placed, target);
+      }
+    }
+  }
+
+  /**
+   * Searches for the best move in a state of the game, on a copy of the game so the real one can
+   * carry on changing
+   */
+  private static class HintTask extends Task<Move> {
+
+    /**
+     * The state the search is for
+     */
+    private final GameSnapshot snapshot;
+
+    /**
+     * The key the hint is remembered by
+     */
+    private final long key;
+
+    /**
+     * The player doing the search
+     */
+    private final MonteCarloPlayer player;
+
+    /**
+     * Create a new HintTask
+     *
+     * @param snapshot the state to search
+     * @param key      the key the hint is remembered by
+     */
+    private HintTask(GameSnapshot snapshot, long key) {
+      this.snapshot = snapshot;
+      this.key = key;
+      int trees = ForkJoinPool.getCommonPoolParallelism();
+      this.player = new MonteCarloPlayer(key, HINT_ITERATIONS, trees, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Search for the best move
+     *
+     * @return the best move, or null if there is none
+     */
+    @Override
+    protected Move call() {
+      return player.chooseMove(new Game(snapshot));
+    }
+
+    /**
+     * Cancel the task and stop the search
+     *
+     * @param mayInterruptIfRunning whether the thread running the task may be interrupted
+     * @return true if the task was cancelled
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+      player.cancel();
+      return super.cancel(mayInterruptIfRunning);
+    }
+  }
+}
@@ -0,0 +1,9 @@
+module uk.ac.soton.comp1206.engine {
+    requires org.apache.logging.log4j;
+    requires static java.management;
+    requires static jdk.management;
+    exports uk.ac.soton.comp1206.ai;
+    exports uk.ac.soton.comp1206.event;
+    exports uk.ac.soton.comp1206.game;
+    exports uk.ac.soton.comp1206.simulation;
+}
@@ -0,0 +1,262 @@
+package uk.ac.soton.comp1206.ai;
+
+import java.util.Arrays;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.game.Grid;
+
+/**
+ * A BatchEvaluator tries many placements on one board at once. Boards of up to 64 blocks are packed
+ * into a long, bit y * cols + x for the block at x, y, and each placement is the packed blocks a
+ * piece covers. For every placement it works out whether it fits, the lines and blocks it clears,
+ * and the WeightedEvaluator score of the board left behind.
+ * <p>
+ * The work is the same bit operations for every placement, so it can be done for several
+ * placements at a time with the Vector API. The vector version is only built with the vector
+ * profile (mvn -Dvector), so the default build does not need the incubating jdk.incubator.vector
+ * module. {@link #create} gives the plain version unless the {@value #VECTOR_PROPERTY} system
+ * property is true, and {@link #vector} asks for the vector version directly. Either way the vector
+ * version also needs the module at run time (run with --add-modules jdk.incubator.vector). Both give
+ * the same results.
+ */
+public abstract class BatchEvaluator {
+
+  private static final Logger logger = LogManager.getLogger(BatchEvaluator.class);
+
+  /**
+   * The system property that makes {@link #create} use the vector version when it can
+   */
+  public static final String VECTOR_PROPERTY = "tetrecs.vector";
+
+  /**
+   * Number of columns of the board
+   */
+  protected final int cols;
+
+  /**
+   * Number of rows of the board
+   */
+  protected final int rows;
+
+  /**
+   * Every block of the board
+   */
+  protected final long full;
+
+  /**
+   * The blocks of the first and last column
+   */
+  protected final long firstCol;
+  protected final long lastCol;
+
+  /**
+   * The blocks of the first and last row
+   */
+  protected final long firstRow;
+  protected final long lastRow;
+
+  /**
+   * The blocks of every row, then every column
+   */
+  protected final long[] lines;
+
+  /**
+   * Weight of each block left on the board
+   */
+  protected final double filledWeight;
+
+  /**
+   * Weight of each side where a block meets an empty space
+   */
+  protected final double edgesWeight;
+
+  /**
+   * Weight of each empty space blocked in on every side
+   */
+  protected final double holesWeight;
+
+  /**
+   * Create a new BatchEvaluator
+   *
+   * @param cols    number of columns of the board
+   * @param rows    number of rows of the board
+   * @param weights weights of the features of the board left behind
+   */
+  protected BatchEvaluator(int cols, int rows, WeightedEvaluator weights) {
+    if (cols < 1 || rows < 1 || cols * rows > Long.SIZE) {
+      throw new IllegalArgumentException("Board must have at most " + Long.SIZE + " blocks");
+    }
+    this.cols = cols;
+    this.rows = rows;
+    this.filledWeight = weights.getFilled();
+    this.edgesWeight = weights.getEdges();
+    this.holesWeight = weights.getHoles();
+
+    int cells = cols * rows;
+    full = cells == Long.SIZE ? -1L : (1L << cells) - 1;
+    firstRow = cols == Long.SIZE ? -1L : (1L << cols) - 1;
+    lastRow = firstRow << (rows - 1) * cols;
+
+    lines = new long[rows + cols];
+    long col = 0;
+    for (int y = 0; y < rows; y++) {
+      lines[y] = firstRow << y * cols;
+      col |= 1L << y * cols;
+    }
+    for (int x = 0; x < cols; x++) {
+      lines[rows + x] = col << x;
+    }
+    firstCol = col;
+    lastCol = col << cols - 1;
+  }
+
+  /**
+   * Create a BatchEvaluator. This tries one placement at a time unless the {@value #VECTOR_PROPERTY}
+   * system property is true and the vector version can be used
+   *
+   * @param cols    number of columns of the board
+   * @param rows    number of rows of the board
+   * @param weights weights of the features of the board left behind
+   * @return the evaluator
+   */
+  public static BatchEvaluator create(int cols, int rows, WeightedEvaluator weights) {
+    if (Boolean.getBoolean(VECTOR_PROPERTY)) {
+      var vector = vector(cols, rows, weights);
+      if (vector != null) {
+        return vector;
+      }
+      logger.warn("Vector evaluator not usable, evaluating one board at a time");
+    }
+    return scalar(cols, rows, weights);
+  }
+
+  /**
+   * Create a BatchEvaluator that uses the Vector API. It is loaded by name, as it is only there when
+   * built with the vector profile
+   *
+   * @param cols    number of columns of the board
+   * @param rows    number of rows of the board
+   * @param weights weights of the features of the board left behind
+   * @return the evaluator, or null if it was not built or jdk.incubator.vector is not present
+   */
+  public static BatchEvaluator vector(int cols, int rows, WeightedEvaluator weights) {
+    var module = ModuleLayer.boot().findModule("jdk.incubator.vector");
+    if (module.isEmpty()) {
+      logger.info("jdk.incubator.vector not present, run with --add-modules jdk.incubator.vector");
+      return null;
+    }
+    //The engine does not require the module, so it has to be read before the class is linked
+    BatchEvaluator.class.getModule().addReads(module.get());
+    try {
+      return (BatchEvaluator) Class.forName(BatchEvaluator.class.getPackageName()
+              + ".VectorBatchEvaluator")
+          .getDeclaredConstructor(int.class, int.class, WeightedEvaluator.class)
+          .newInstance(cols, rows, weights);
+    } catch (ClassNotFoundException e) {
+      logger.info("Vector evaluator not built, build with the vector profile (mvn -Dvector)");
+    } catch (ReflectiveOperationException | LinkageError e) {
+      logger.warn("Vector API not usable: {}", e.toString());
+    }
+    return null;
+  }
+
+  /**
+   * Create a BatchEvaluator that tries one placement at a time, even if the Vector API is available
+   *
+   * @param cols    number of columns of the board
+   * @param rows    number of rows of the board
+   * @param weights weights of the features of the board left behind
+   * @return the evaluator
+   */
+  public static BatchEvaluator scalar(int cols, int rows, WeightedEvaluator weights) {
+    return new ScalarBatchEvaluator(cols, rows, weights);
+  }
+
+  /**
+   * Try every placement on a board
+   *
+   * @param board      the packed board
+   * @param placements the packed blocks of each placement
+   * @param count      number of placements to try
+   * @param results    where to put the results, with room for every placement
+   */
+  public abstract void evaluate(long board, long[] placements, int count, Results results);
+
+  /**
+   * Pack the blocks of a grid into a long
+   *
+   * @param grid the grid, with at most 64 blocks
+   * @return the packed grid
+   */
+  public static long pack(Grid grid) {
+    long board = 0;
+    for (int y = 0; y < grid.getRows(); y++) {
+      board |= grid.getRowBits(y) << y * grid.getCols();
+    }
+    return board;
+  }
+
+  /**
+   * Find every placement of every piece in every rotation that fits on an empty board
+   *
+   * @param cols number of columns of the board
+   * @param rows number of rows of the board
+   * @return the packed blocks of each placement
+   */
+  public static long[] placements(int cols, int rows) {
+    var empty = new Grid(cols, rows);
+    long[] legal = new long[GamePiece.ROTATIONS * rows];
+    long[] found = new long[GamePiece.PIECES * GamePiece.ROTATIONS * cols * rows];
+    int count = 0;
+
+    for (int piece = 0; piece < GamePiece.PIECES; piece++) {
+      empty.findPlacements(GamePiece.createPiece(piece), legal);
+      for (int i = 0; i < legal.length; i++) {
+        var rotated = GamePiece.createPiece(piece, i / rows);
+        int placeY = i % rows;
+        for (long row = legal[i]; row != 0; row &= row - 1) {
+          int placeX = Long.numberOfTrailingZeros(row);
+          long mask = 0;
+          for (int y = rotated.getMinY(); y <= rotated.getMaxY(); y++) {
+            mask |= rotated.getRowMask(y, placeX - 1) << (placeY - 1 + y) * cols;
+          }
+          found[count++] = mask;
+        }
+      }
+    }
+    return Arrays.copyOf(found, count);
+  }
+
+  /**
+   * The results of a batch, one of each per placement
+   */
+  public static class Results {
+
+    /**
+     * Score of the board left behind, or negative infinity if the placement does not fit
+     */
+    public final double[] scores;
+
+    /**
+     * Number of lines cleared
+     */
+    public final int[] lines;
+
+    /**
+     * Number of blocks cleared
+     */
+    public final int[] blocks;
+
+    /**
+     * Create new Results
+     *
+     * @param capacity the most placements in a batch
+     */
+    public Results(int capacity) {
+      scores = new double[capacity];
+      lines = new int[capacity];
+      blocks = new int[capacity];
+    }
+  }
+}
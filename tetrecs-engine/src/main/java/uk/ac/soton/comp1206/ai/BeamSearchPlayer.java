@@ -0,0 +1,393 @@
+package uk.ac.soton.comp1206.ai;
+
+import java.util.stream.IntStream;
+import uk.ac.soton.comp1206.game.Game;
+import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.game.Grid;
+import uk.ac.soton.comp1206.game.Zobrist;
+
+/**
+ * A MovePolicy that searches two pieces ahead: the current piece and the following piece. Swapping
+ * them first is tried as well.
+ * <p>
+ * Every placement of the first piece is scored by the points it earns plus the evaluator's score of
+ * the grid left behind, and only the best few (the beam) are kept. Each of those is then given the
+ * score of the best placement of the second piece after it, and the move leading to the best is
+ * chosen. When the beam is wide its positions are searched in parallel.
+ * <p>
+ * What the search finds is kept in a TranspositionTable: the best move from each position it is
+ * asked about, and the best placement of the second piece after each position in the beam. Either
+ * is used straight away when the same position comes up again.
+ * <p>
+ * A BeamSearchPlayer is not thread safe, each game should use its own.
+ */
+public class BeamSearchPlayer implements MovePolicy {
+
+  /**
+   * The beam width the simulator uses
+   */
+  public static final int DEFAULT_WIDTH = 8;
+
+  /**
+   * Beams at least this wide are searched in parallel
+   */
+  public static final int PARALLEL_WIDTH = 16;
+
+  /**
+   * Taken off the score of a position where the second piece cannot be played anywhere, as it would
+   * cost a life
+   */
+  private static final double NO_MOVES_PENALTY = 1000;
+
+  /**
+   * Depth recorded in the table for the best placement of the second piece
+   */
+  private static final int FOLLOW_UP_DEPTH = 1;
+
+  /**
+   * Depth recorded in the table for the best move from a position
+   */
+  private static final int MOVE_DEPTH = 2;
+
+  /**
+   * The number of positions kept after the first piece
+   */
+  private final int width;
+
+  /**
+   * Scores the grids reached
+   */
+  private final BoardEvaluator evaluator;
+
+  /**
+   * Remembers what the search found, or null to not remember
+   */
+  private final TranspositionTable table;
+
+  /**
+   * Copy of the game's grid, taken at the start of each move
+   */
+  private Grid root;
+
+  /**
+   * Working space for searching on one thread, reused for each move
+   */
+  private Search search;
+
+  /**
+   * Create a new BeamSearchPlayer with the default evaluator and a table of the default size
+   *
+   * @param width the number of positions kept after the first piece
+   */
+  public BeamSearchPlayer(int width) {
+    this(width, WeightedEvaluator.DEFAULT,
+        new TranspositionTable(TranspositionTable.DEFAULT_MEGABYTES));
+  }
+
+  /**
+   * Create a new BeamSearchPlayer
+   *
+   * @param width     the number of positions kept after the first piece
+   * @param evaluator scores the grids reached
+   * @param table     remembers what the search found, or null to not remember. Can be shared with
+   *                  other players using the same width and evaluator
+   */
+  public BeamSearchPlayer(int width, BoardEvaluator evaluator, TranspositionTable table) {
+    if (width < 1) {
+      throw new IllegalArgumentException("Beam width must be at least 1");
+    }
+    this.width = width;
+    this.evaluator = evaluator;
+    this.table = table;
+  }
+
+  /**
+   * Choose the move that leads to the best position after the current and following piece
+   *
+   * @param game the game to choose a move in
+   * @return the move, or null if neither piece can be played anywhere
+   */
+  @Override
+  public Move chooseMove(Game game) {
+    Grid grid = game.getGrid();
+    if (root == null || root.getCols() != grid.getCols() || root.getRows() != grid.getRows()) {
+      root = new Grid(grid);
+      search = new Search(root);
+    } else {
+      root.copyFrom(grid);
+    }
+
+    GamePiece current = game.getCurrentPiece();
+    GamePiece following = game.getFollowingPiece();
+    int multiplier = game.getMultiplier();
+
+    //Use the move found last time this position came up
+    long key = 0;
+    if (table != null) {
+      table.newSearch();
+      key = root.getHash() ^ Zobrist.currentKey(unrotated(current))
+          ^ Zobrist.followingKey(unrotated(following)) ^ Zobrist.multiplierKey(multiplier);
+      long data = table.probe(key);
+      Move known = TranspositionTable.getMove(data);
+      if (data != 0 && TranspositionTable.getDepth(data) >= MOVE_DEPTH && known != null
+          && isLegal(known, current, following)) {
+        return known;
+      }
+    }
+
+    //Keep the best placements of the first piece, with and without swapping
+    var beam = new Beam(width);
+    search.expand(current, multiplier, false, beam);
+    if (following != null) {
+      search.expand(following, multiplier, true, beam);
+    }
+    if (beam.size == 0) {
+      return null;
+    }
+
+    //Score each position in the beam by the best placement of the second piece
+    double[] values = new double[beam.size];
+    if (beam.size >= PARALLEL_WIDTH) {
+      IntStream.range(0, beam.size).parallel()
+          .forEach(i -> values[i] = new Search(root).followUp(beam, i, current, following));
+    } else {
+      for (int i = 0; i < beam.size; i++) {
+        values[i] = search.followUp(beam, i, current, following);
+      }
+    }
+
+    //Choose the best, the earlier one on a tie as the beam is in order
+    int best = 0;
+    for (int i = 1; i < beam.size; i++) {
+      if (values[i] > values[best]) {
+        best = i;
+      }
+    }
+    var move = new Move(beam.swap[best], beam.rotation[best], beam.x[best], beam.y[best]);
+    if (table != null) {
+      table.store(key, values[best], MOVE_DEPTH, move);
+    }
+    return move;
+  }
+
+  /**
+   * Check a move remembered by the table can be played, in case of two positions with the same key
+   *
+   * @param move      the move
+   * @param current   the current piece
+   * @param following the following piece
+   * @return true if the move can be played
+   */
+  private boolean isLegal(Move move, GamePiece current, GamePiece following) {
+    var piece = move.isSwap() ? following : current;
+    return piece != null && root.canPlayPiece(
+        GamePiece.createPiece(piece.getPiece(), move.getRotation()), move.getX(), move.getY());
+  }
+
+  /**
+   * Get a piece in its first rotation, as the search tries every rotation of a piece and so finds
+   * the same whatever rotation it is in
+   *
+   * @param piece the piece, or null
+   * @return the piece in its first rotation, or null
+   */
+  private static GamePiece unrotated(GamePiece piece) {
+    return piece == null ? null : GamePiece.createPiece(piece.getPiece(), 0);
+  }
+
+  /**
+   * Return a string representation of this BeamSearchPlayer
+   *
+   * @return string representation
+   */
+  @Override
+  public String toString() {
+    return "BeamSearchPlayer [width = " + width + ", evaluator = " + evaluator + "]";
+  }
+
+  /**
+   * The best placements of the first piece, kept in order with the best first
+   */
+  private static class Beam {
+
+    private final boolean[] swap;
+    private final int[] rotation;
+    private final int[] x;
+    private final int[] y;
+    /**
+     * The points earned by each placement
+     */
+    private final int[] reward;
+    /**
+     * The multiplier after each placement
+     */
+    private final int[] multiplier;
+    /**
+     * The points earned plus the score of the grid left behind, used to order the beam
+     */
+    private final double[] score;
+    private int size;
+
+    private Beam(int width) {
+      swap = new boolean[width];
+      rotation = new int[width];
+      x = new int[width];
+      y = new int[width];
+      reward = new int[width];
+      multiplier = new int[width];
+      score = new double[width];
+    }
+
+    /**
+     * Add a placement if it is better than the worst one kept
+     */
+    private void offer(double value, boolean swapped, int rotated, int placeX, int placeY,
+        int earned, int nextMultiplier) {
+      if (size == score.length && value <= score[size - 1]) {
+        return;
+      }
+
+      //Shuffle the worse placements down to make room
+      int i = size == score.length ? size - 1 : size++;
+      for (; i > 0 && score[i - 1] < value; i--) {
+        swap[i] = swap[i - 1];
+        rotation[i] = rotation[i - 1];
+        x[i] = x[i - 1];
+        y[i] = y[i - 1];
+        reward[i] = reward[i - 1];
+        multiplier[i] = multiplier[i - 1];
+        score[i] = score[i - 1];
+      }
+      swap[i] = swapped;
+      rotation[i] = rotated;
+      x[i] = placeX;
+      y[i] = placeY;
+      reward[i] = earned;
+      multiplier[i] = nextMultiplier;
+      score[i] = value;
+    }
+  }
+
+  /**
+   * Working space for searching on one thread: grids to play on and buffers for the placements and
+   * full lines
+   */
+  private class Search {
+
+    private final Grid start;
+    private final Grid after;
+    private final Grid scratch;
+    private final long[] legal;
+    private final long[] clearMask;
+
+    /**
+     * The points earned by the last placement tried
+     */
+    private int earned;
+
+    /**
+     * The multiplier after the last placement tried
+     */
+    private int nextMultiplier;
+
+    private Search(Grid start) {
+      this.start = start;
+      this.after = new Grid(start);
+      this.scratch = new Grid(start);
+      this.legal = new long[GamePiece.ROTATIONS * start.getRows()];
+      this.clearMask = new long[start.getRows()];
+    }
+
+    /**
+     * Offer every placement of the first piece to the beam
+     */
+    private void expand(GamePiece piece, int multiplier, boolean swapped, Beam beam) {
+      int rows = start.getRows();
+      if (start.findPlacements(piece, legal) == 0) {
+        return;
+      }
+      for (int i = 0; i < GamePiece.ROTATIONS * rows; i++) {
+        var rotated = GamePiece.createPiece(piece.getPiece(), i / rows);
+        for (long placements = legal[i]; placements != 0; placements &= placements - 1) {
+          int x = Long.numberOfTrailingZeros(placements);
+          double value = place(start, rotated, x, i % rows, multiplier);
+          beam.offer(value, swapped, i / rows, x, i % rows, earned, nextMultiplier);
+        }
+      }
+    }
+
+    /**
+     * Score a position in the beam by the best placement of the second piece after it
+     */
+    private double followUp(Beam beam, int i, GamePiece current, GamePiece following) {
+      //Rebuild the grid after the first piece
+      var first = GamePiece.createPiece((beam.swap[i] ? following : current).getPiece(),
+          beam.rotation[i]);
+      place(start, first, beam.x[i], beam.y[i], 0);
+      after.copyFrom(scratch);
+
+      //The piece left to play next
+      var second = beam.swap[i] ? current : following;
+      if (second == null) {
+        return beam.score[i];
+      }
+
+      //Use the best placement found last time this position came up
+      long key = 0;
+      if (table != null) {
+        key = after.getHash() ^ Zobrist.currentKey(unrotated(second))
+            ^ Zobrist.multiplierKey(beam.multiplier[i]);
+        long data = table.probe(key);
+        if (data != 0 && TranspositionTable.getDepth(data) >= FOLLOW_UP_DEPTH) {
+          return beam.reward[i] + TranspositionTable.getEval(data);
+        }
+      }
+
+      int rows = after.getRows();
+      if (after.findPlacements(second, legal) == 0) {
+        return beam.score[i] - NO_MOVES_PENALTY;
+      }
+      double best = Double.NEGATIVE_INFINITY;
+      int bestIndex = 0;
+      int bestX = 0;
+      for (int j = 0; j < GamePiece.ROTATIONS * rows; j++) {
+        var rotated = GamePiece.createPiece(second.getPiece(), j / rows);
+        for (long placements = legal[j]; placements != 0; placements &= placements - 1) {
+          int x = Long.numberOfTrailingZeros(placements);
+          double value = place(after, rotated, x, j % rows, beam.multiplier[i]);
+          if (value > best) {
+            best = value;
+            bestIndex = j;
+            bestX = x;
+          }
+        }
+      }
+      if (table != null) {
+        table.store(key, best, FOLLOW_UP_DEPTH,
+            new Move(false, bestIndex / rows, bestX, bestIndex % rows));
+      }
+      return beam.reward[i] + best;
+    }
+
+    /**
+     * Play a piece on a copy of a grid in the scratch grid and clear any full lines
+     *
+     * @return the points earned plus the evaluator's score of the grid left behind
+     */
+    private double place(Grid grid, GamePiece piece, int x, int y, int multiplier) {
+      scratch.copyFrom(grid);
+      scratch.playPiece(piece, x, y);
+
+      int lines = scratch.findFullLines(piece, x, y, clearMask);
+      if (lines > 0) {
+        earned = Game.lineScore(lines, Grid.countBlocks(clearMask), multiplier);
+        nextMultiplier = multiplier + 1;
+        scratch.clear(clearMask);
+      } else {
+        earned = 0;
+        nextMultiplier = 1;
+      }
+      return earned + evaluator.evaluate(scratch);
+    }
+  }
+}
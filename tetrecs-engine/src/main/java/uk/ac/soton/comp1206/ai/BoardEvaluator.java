@@ -0,0 +1,21 @@
+package uk.ac.soton.comp1206.ai;
+
+import uk.ac.soton.comp1206.game.Grid;
+
+/**
+ * A BoardEvaluator scores how good a grid is to keep playing on, higher being better. Used by the
+ * search players to compare the positions they reach.
+ * <p>
+ * Evaluators may be called from several threads at once, so must not keep any state between calls.
+ */
+@FunctionalInterface
+public interface BoardEvaluator {
+
+  /**
+   * Score a grid
+   *
+   * @param grid grid to score
+   * @return the score, higher being better
+   */
+  double evaluate(Grid grid);
+}
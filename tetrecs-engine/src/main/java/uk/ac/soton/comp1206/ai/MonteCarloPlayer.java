@@ -0,0 +1,499 @@
+package uk.ac.soton.comp1206.ai;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import uk.ac.soton.comp1206.game.Game;
+import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.game.Grid;
+import uk.ac.soton.comp1206.game.PieceGenerator;
+
+/**
+ * A MovePolicy that uses Monte Carlo tree search. The tree covers the two pieces that are known:
+ * the current piece, or the following piece after a swap, then the other of the two. Below that
+ * each iteration plays out a random continuation: random pieces placed at random, for a set number
+ * of pieces or until one does not fit. The value of an iteration is the points earned along the
+ * way plus the evaluator's score of the grid it ends on.
+ * <p>
+ * Search is parallel by building several independent trees, each with its own stream of random
+ * numbers, on a fork/join pool. The visits of the first moves of every tree are then added up and
+ * the most visited move is chosen. The random streams are split from the seed of the player in a
+ * fixed order, so the same seed and number of trees always choose the same moves.
+ * <p>
+ * A MonteCarloPlayer is not thread safe, each game should use its own, but they can share a pool.
+ */
+public class MonteCarloPlayer implements MovePolicy {
+
+  /**
+   * The iterations per move the simulator uses
+   */
+  public static final int DEFAULT_ITERATIONS = 2000;
+
+  /**
+   * The number of random pieces played after the known pieces
+   */
+  public static final int DEFAULT_HORIZON = 6;
+
+  /**
+   * How much the search favours trying moves it has visited less, relative to the range of values
+   * it has seen
+   */
+  private static final double EXPLORATION = Math.sqrt(2);
+
+  /**
+   * Taken off the value of an iteration when a piece does not fit, as it would cost a life
+   */
+  private static final double NO_MOVES_PENALTY = 1000;
+
+  /**
+   * Source of the random streams of the trees
+   */
+  private final SplittableRandom random;
+
+  /**
+   * Total iterations per move, shared between the trees
+   */
+  private final int iterations;
+
+  /**
+   * Number of independent trees built for each move
+   */
+  private final int trees;
+
+  /**
+   * Pool the trees are built on, or null to build them on the calling thread
+   */
+  private final ForkJoinPool pool;
+
+  /**
+   * Scores the grids the random continuations end on
+   */
+  private final BoardEvaluator evaluator;
+
+  /**
+   * Number of random continuations played so far
+   */
+  private long rollouts;
+
+  /**
+   * Set to stop the search early
+   */
+  private volatile boolean cancelled;
+
+  /**
+   * Create a new MonteCarloPlayer that builds one tree on the calling thread
+   *
+   * @param seed seed of the random continuations
+   */
+  public MonteCarloPlayer(long seed) {
+    this(seed, DEFAULT_ITERATIONS, 1, null);
+  }
+
+  /**
+   * Create a new MonteCarloPlayer with the default evaluator
+   *
+   * @param seed       seed of the random continuations
+   * @param iterations total iterations per move, shared between the trees
+   * @param trees      number of independent trees built for each move
+   * @param pool       pool the trees are built on, or null to build them on the calling thread
+   */
+  public MonteCarloPlayer(long seed, int iterations, int trees, ForkJoinPool pool) {
+    this(seed, iterations, trees, pool, WeightedEvaluator.DEFAULT);
+  }
+
+  /**
+   * Create a new MonteCarloPlayer
+   *
+   * @param seed       seed of the random continuations
+   * @param iterations total iterations per move, shared between the trees
+   * @param trees      number of independent trees built for each move
+   * @param pool       pool the trees are built on, or null to build them on the calling thread
+   * @param evaluator  scores the grids the random continuations end on
+   */
+  public MonteCarloPlayer(long seed, int iterations, int trees, ForkJoinPool pool,
+      BoardEvaluator evaluator) {
+    if (iterations < trees || trees < 1) {
+      throw new IllegalArgumentException("Need at least one tree and one iteration per tree");
+    }
+    this.random = new SplittableRandom(seed);
+    this.iterations = iterations;
+    this.trees = trees;
+    this.pool = pool;
+    this.evaluator = evaluator;
+  }
+
+  /**
+   * Choose the move visited most across all the trees
+   *
+   * @param game the game to choose a move in
+   * @return the move, or null if neither piece can be played anywhere
+   */
+  @Override
+  public Move chooseMove(Game game) {
+    var root = new Root(new Grid(game.getGrid()), game.getCurrentPiece(),
+        game.getFollowingPiece(), game.getMultiplier());
+    if (root.moves == 0) {
+      return null;
+    }
+
+    //Give every tree its own stream and share of the iterations
+    SplittableRandom[] streams = new SplittableRandom[trees];
+    for (int i = 0; i < trees; i++) {
+      streams[i] = random.split();
+    }
+    Tree[] built = new Tree[trees];
+    if (trees == 1 || pool == null) {
+      for (int i = 0; i < trees; i++) {
+        built[i] = search(root, streams[i], i);
+      }
+    } else {
+      pool.submit(() -> IntStream.range(0, trees).parallel()
+          .forEach(i -> built[i] = search(root, streams[i], i))).join();
+    }
+
+    //Add up the visits of the first moves of every tree
+    long[] visits = new long[root.moves];
+    double[] totals = new double[root.moves];
+    for (Tree tree : built) {
+      for (int i = 0; i < root.moves; i++) {
+        visits[i] += tree.visits[i];
+        totals[i] += tree.totals[i];
+      }
+      rollouts += tree.iterations;
+    }
+
+    //Choose the most visited, the best value on a tie
+    int best = 0;
+    for (int i = 1; i < root.moves; i++) {
+      if (visits[i] > visits[best]
+          || visits[i] == visits[best] && totals[i] > totals[best]) {
+        best = i;
+      }
+    }
+    return root.move(best);
+  }
+
+  /**
+   * Build one tree
+   *
+   * @param root   the first moves
+   * @param stream random numbers of the tree
+   * @param index  number of the tree
+   * @return the tree
+   */
+  private Tree search(Root root, SplittableRandom stream, int index) {
+    var tree = new Tree(root, stream);
+    int share = iterations / trees + (index < iterations % trees ? 1 : 0);
+    for (int i = 0; i < share && !cancelled; i++) {
+      tree.iterate();
+      tree.iterations++;
+    }
+    return tree;
+  }
+
+  /**
+   * Stop the search early, from any thread. The move being chosen is picked from the iterations
+   * run so far, and any later move is picked without searching
+   */
+  public void cancel() {
+    cancelled = true;
+  }
+
+  /**
+   * Get the number of random continuations played so far by this player
+   *
+   * @return number of random continuations
+   */
+  public long getRollouts() {
+    return rollouts;
+  }
+
+  /**
+   * Return a string representation of this MonteCarloPlayer
+   *
+   * @return string representation
+   */
+  @Override
+  public String toString() {
+    return "MonteCarloPlayer [iterations = " + iterations + ", trees = " + trees + ", evaluator = "
+        + evaluator + "]";
+  }
+
+  /**
+   * Pick the child to visit next by the upper confidence bound of its value
+   *
+   * @param visits  visits of each child
+   * @param totals  total value of each child
+   * @param count   number of children
+   * @param visited visits of the parent
+   * @param range   range of values seen, to scale the exploration by
+   * @return the child to visit
+   */
+  private static int select(int[] visits, double[] totals, int count, int visited, double range) {
+    double logVisited = Math.log(visited);
+    double exploration = EXPLORATION * Math.max(range, 1);
+    int best = 0;
+    double bestBound = Double.NEGATIVE_INFINITY;
+    for (int i = 0; i < count; i++) {
+      if (visits[i] == 0) {
+        return i;
+      }
+      double bound = totals[i] / visits[i] + exploration * Math.sqrt(logVisited / visits[i]);
+      if (bound > bestBound) {
+        bestBound = bound;
+        best = i;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * The position being searched from and its legal first moves, shared by every tree
+   */
+  private static class Root {
+
+    private final Grid grid;
+    private final GamePiece current;
+    private final GamePiece following;
+    private final int multiplier;
+
+    /**
+     * Legal placements of the current piece, then the following piece, as found by
+     * {@link Grid#findPlacements}
+     */
+    private final long[] legal;
+    private final int currentMoves;
+    private final int moves;
+
+    private Root(Grid grid, GamePiece current, GamePiece following, int multiplier) {
+      this.grid = grid;
+      this.current = current;
+      this.following = following;
+      this.multiplier = multiplier;
+
+      int size = GamePiece.ROTATIONS * grid.getRows();
+      legal = new long[2 * size];
+      long[] buffer = new long[size];
+      currentMoves = grid.findPlacements(current, buffer);
+      System.arraycopy(buffer, 0, legal, 0, size);
+      int followingMoves = 0;
+      if (following != null) {
+        followingMoves = grid.findPlacements(following, buffer);
+        System.arraycopy(buffer, 0, legal, size, size);
+      }
+      moves = currentMoves + followingMoves;
+    }
+
+    /**
+     * Get a first move by its number
+     *
+     * @param index number of the move
+     * @return the move
+     */
+    private Move move(int index) {
+      int rows = grid.getRows();
+      for (int i = 0; i < legal.length; i++) {
+        long placements = legal[i];
+        int found = Long.bitCount(placements);
+        if (index < found) {
+          for (; index > 0; index--) {
+            placements &= placements - 1;
+          }
+          int placing = i % (GamePiece.ROTATIONS * rows);
+          return new Move(i >= GamePiece.ROTATIONS * rows, placing / rows,
+              Long.numberOfTrailingZeros(placements), placing % rows);
+        }
+        index -= found;
+      }
+      throw new IndexOutOfBoundsException("No such move: " + index);
+    }
+  }
+
+  /**
+   * The position after a first move, with statistics for the moves of the second piece
+   */
+  private static class Node {
+
+    private final Grid grid;
+    private final int reward;
+    private final int multiplier;
+    private final GamePiece piece;
+    private final long[] legal;
+    private final int moves;
+    private final int[] visits;
+    private final double[] totals;
+    private int visited;
+
+    private Node(Grid grid, int reward, int multiplier, GamePiece piece) {
+      this.grid = grid;
+      this.reward = reward;
+      this.multiplier = multiplier;
+      this.piece = piece;
+      this.legal = new long[GamePiece.ROTATIONS * grid.getRows()];
+      this.moves = piece == null ? 0 : grid.findPlacements(piece, legal);
+      this.visits = new int[moves];
+      this.totals = new double[moves];
+    }
+  }
+
+  /**
+   * One search tree, built on one thread
+   */
+  private class Tree {
+
+    private final Root root;
+    private final SplittableRandom stream;
+    private final PieceGenerator pieces;
+    private final Node[] children;
+    private final int[] visits;
+    private final double[] totals;
+    private int visited;
+
+    /**
+     * Number of iterations run
+     */
+    private int iterations;
+
+    /**
+     * Lowest and highest values seen, to scale the exploration by
+     */
+    private double low = Double.POSITIVE_INFINITY;
+    private double high = Double.NEGATIVE_INFINITY;
+
+    /**
+     * Working space for playing pieces
+     */
+    private final Grid scratch;
+    private final long[] legal;
+    private final long[] clearMask;
+    private int earned;
+    private int nextMultiplier;
+
+    private Tree(Root root, SplittableRandom stream) {
+      this.root = root;
+      this.stream = stream;
+      this.pieces = new PieceGenerator(stream.nextLong());
+      this.children = new Node[root.moves];
+      this.visits = new int[root.moves];
+      this.totals = new double[root.moves];
+      this.scratch = new Grid(root.grid);
+      this.legal = new long[GamePiece.ROTATIONS * root.grid.getRows()];
+      this.clearMask = new long[root.grid.getRows()];
+    }
+
+    /**
+     * Run one iteration: pick the moves of the two known pieces, play out a random continuation
+     * and add its value to the moves picked
+     */
+    private void iterate() {
+      double range = high - low;
+      int first = select(visits, totals, root.moves, visited, range);
+      Node child = children[first];
+      if (child == null) {
+        child = children[first] = expand(first);
+      }
+
+      double value;
+      if (child.moves == 0) {
+        //The second piece does not fit anywhere
+        value = child.reward - NO_MOVES_PENALTY + evaluator.evaluate(child.grid);
+      } else {
+        int second = select(child.visits, child.totals, child.moves, child.visited, range);
+        scratch.copyFrom(child.grid);
+        playPlacement(child.piece, child.legal, second, child.multiplier);
+        value = child.reward + earned + rollout(nextMultiplier);
+
+        child.visits[second]++;
+        child.totals[second] += value;
+        child.visited++;
+      }
+
+      visits[first]++;
+      totals[first] += value;
+      visited++;
+      low = Math.min(low, value);
+      high = Math.max(high, value);
+    }
+
+    /**
+     * Make the node for the position after a first move
+     *
+     * @param index number of the first move
+     * @return the node
+     */
+    private Node expand(int index) {
+      var move = root.move(index);
+      var piece = move.isSwap() ? root.following : root.current;
+      var rotated = GamePiece.createPiece(piece.getPiece(), move.getRotation());
+      scratch.copyFrom(root.grid);
+      scratch.playPiece(rotated, move.getX(), move.getY());
+      clearLines(rotated, move.getX(), move.getY(), root.multiplier);
+      return new Node(new Grid(scratch), earned, nextMultiplier,
+          move.isSwap() ? root.current : root.following);
+    }
+
+    /**
+     * Play random pieces at random places on the scratch grid
+     *
+     * @param multiplier the multiplier to start with
+     * @return the points earned plus the evaluator's score of the grid at the end
+     */
+    private double rollout(int multiplier) {
+      double value = 0;
+      for (int i = 0; i < DEFAULT_HORIZON; i++) {
+        var piece = pieces.next();
+        int count = scratch.findPlacements(piece, legal);
+        if (count == 0) {
+          value -= NO_MOVES_PENALTY;
+          break;
+        }
+        playPlacement(piece, legal, stream.nextInt(count), multiplier);
+        value += earned;
+        multiplier = nextMultiplier;
+      }
+      return value + evaluator.evaluate(scratch);
+    }
+
+    /**
+     * Play a piece on the scratch grid at one of its legal placements
+     *
+     * @param piece      the piece to play
+     * @param placements legal placements of the piece, as found by {@link Grid#findPlacements}
+     * @param index      number of the placement to play
+     * @param multiplier the multiplier before playing
+     */
+    private void playPlacement(GamePiece piece, long[] placements, int index, int multiplier) {
+      int rows = scratch.getRows();
+      for (int i = 0; i < placements.length; i++) {
+        long row = placements[i];
+        int found = Long.bitCount(row);
+        if (index < found) {
+          for (; index > 0; index--) {
+            row &= row - 1;
+          }
+          var rotated = GamePiece.createPiece(piece.getPiece(), i / rows);
+          int x = Long.numberOfTrailingZeros(row);
+          scratch.playPiece(rotated, x, i % rows);
+          clearLines(rotated, x, i % rows, multiplier);
+          return;
+        }
+        index -= found;
+      }
+    }
+
+    /**
+     * Clear the lines filled by a piece played on the scratch grid and work out the points earned
+     */
+    private void clearLines(GamePiece piece, int x, int y, int multiplier) {
+      int lines = scratch.findFullLines(piece, x, y, clearMask);
+      if (lines > 0) {
+        earned = Game.lineScore(lines, Grid.countBlocks(clearMask), multiplier);
+        nextMultiplier = multiplier + 1;
+        scratch.clear(clearMask);
+      } else {
+        earned = 0;
+        nextMultiplier = 1;
+      }
+    }
+  }
+}
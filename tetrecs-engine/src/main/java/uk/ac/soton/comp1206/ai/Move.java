@@ -0,0 +1,113 @@
+package uk.ac.soton.comp1206.ai;
+
+import uk.ac.soton.comp1206.game.Game;
+import uk.ac.soton.comp1206.game.GamePiece;
+
+/**
+ * A Move is one decision a player makes with the current piece: whether to swap it with the
+ * following piece first, which rotation to play it in and where to place it.
+ * <p>
+ * Moves are immutable.
+ */
+public class Move {
+
+  /**
+   * Whether the current and following piece are swapped before placing
+   */
+  private final boolean swap;
+
+  /**
+   * The rotation the piece is placed in
+   */
+  private final int rotation;
+
+  /**
+   * The x position the piece is placed at
+   */
+  private final int x;
+
+  /**
+   * The y position the piece is placed at
+   */
+  private final int y;
+
+  /**
+   * Create a new Move
+   *
+   * @param swap     whether to swap the current and following piece first
+   * @param rotation the rotation to place the piece in, between 0 and 3
+   * @param x        x position to place the piece at
+   * @param y        y position to place the piece at
+   */
+  public Move(boolean swap, int rotation, int x, int y) {
+    this.swap = swap;
+    this.rotation = rotation;
+    this.x = x;
+    this.y = y;
+  }
+
+  /**
+   * Make this move in the game: swap if needed, rotate the piece and place it
+   *
+   * @param game game to play the move in
+   */
+  public void apply(Game game) {
+    if (swap) {
+      game.swapCurrentPiece();
+    }
+
+    //Rotate the piece the least number of times to reach the rotation of the move
+    int turns = Math.floorMod(rotation - game.getCurrentPiece().getRotation(), GamePiece.ROTATIONS);
+    if (turns != 0) {
+      game.rotateCurrentPiece(turns);
+    }
+
+    game.placeBlock(x, y);
+  }
+
+  /**
+   * Check if the current and following piece are swapped before placing
+   *
+   * @return true if the pieces are swapped
+   */
+  public boolean isSwap() {
+    return swap;
+  }
+
+  /**
+   * Get the rotation the piece is placed in
+   *
+   * @return rotation between 0 and 3
+   */
+  public int getRotation() {
+    return rotation;
+  }
+
+  /**
+   * Get the x position the piece is placed at
+   *
+   * @return x position
+   */
+  public int getX() {
+    return x;
+  }
+
+  /**
+   * Get the y position the piece is placed at
+   *
+   * @return y position
+   */
+  public int getY() {
+    return y;
+  }
+
+  /**
+   * Return a string representation of this Move
+   *
+   * @return string representation
+   */
+  @Override
+  public String toString() {
+    return "Move [swap = " + swap + ", rotation = " + rotation + ", x = " + x + ", y = " + y + "]";
+  }
+}
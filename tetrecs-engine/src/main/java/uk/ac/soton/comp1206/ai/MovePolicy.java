@@ -0,0 +1,18 @@
+package uk.ac.soton.comp1206.ai;
+
+import uk.ac.soton.comp1206.game.Game;
+
+/**
+ * A MovePolicy decides the move to make in a game. Used by the simulator and anything else that
+ * plays the game without a person.
+ */
+public interface MovePolicy {
+
+  /**
+   * Choose the next move to make in the game. The game must not be changed
+   *
+   * @param game the game to choose a move in
+   * @return the move to make, or null to let the current piece time out
+   */
+  Move chooseMove(Game game);
+}
@@ -0,0 +1,70 @@
+package uk.ac.soton.comp1206.ai;
+
+import java.util.SplittableRandom;
+import uk.ac.soton.comp1206.game.Game;
+import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.game.Grid;
+
+/**
+ * A MovePolicy that plays the current piece at a random legal position and rotation. Never swaps.
+ * A baseline for comparing other policies against.
+ */
+public class RandomPolicy implements MovePolicy {
+
+  /**
+   * Source of random numbers, split from the seed of the policy
+   */
+  private final SplittableRandom random;
+
+  /**
+   * Buffer for the legal placements, reused for each move
+   */
+  private long[] legal = new long[0];
+
+  /**
+   * Create a new RandomPolicy
+   *
+   * @param seed seed of the random choices, such as the seed of the game
+   */
+  public RandomPolicy(long seed) {
+    //Split off rather than used as it is, so the choices do not follow the pieces of a game made
+    //from the same seed
+    this.random = new SplittableRandom(seed).split();
+  }
+
+  /**
+   * Choose a random legal placement of the current piece
+   *
+   * @param game the game to choose a move in
+   * @return the move, or null if the current piece cannot be played anywhere
+   */
+  @Override
+  public Move chooseMove(Game game) {
+    Grid grid = game.getGrid();
+    int rows = grid.getRows();
+    if (legal.length < GamePiece.ROTATIONS * rows) {
+      legal = new long[GamePiece.ROTATIONS * rows];
+    }
+
+    //Find every legal placement and pick one of them
+    int count = grid.findPlacements(game.getCurrentPiece(), legal);
+    if (count == 0) {
+      return null;
+    }
+    int pick = random.nextInt(count);
+
+    //Walk through the placements to the one picked
+    for (int i = 0; i < GamePiece.ROTATIONS * rows; i++) {
+      long placements = legal[i];
+      int found = Long.bitCount(placements);
+      if (pick < found) {
+        for (; pick > 0; pick--) {
+          placements &= placements - 1;
+        }
+        return new Move(false, i / rows, Long.numberOfTrailingZeros(placements), i % rows);
+      }
+      pick -= found;
+    }
+    return null;
+  }
+}
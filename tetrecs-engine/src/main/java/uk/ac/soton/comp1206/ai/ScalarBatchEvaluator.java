@@ -0,0 +1,78 @@
+package uk.ac.soton.comp1206.ai;
+
+/**
+ * A BatchEvaluator that tries one placement at a time. Used when the Vector API is not available.
+ */
+class ScalarBatchEvaluator extends BatchEvaluator {
+
+  /**
+   * Create a new ScalarBatchEvaluator
+   *
+   * @param cols    number of columns of the board
+   * @param rows    number of rows of the board
+   * @param weights weights of the features of the board left behind
+   */
+  ScalarBatchEvaluator(int cols, int rows, WeightedEvaluator weights) {
+    super(cols, rows, weights);
+  }
+
+  /**
+   * Try every placement on a board, one at a time
+   *
+   * @param board      the packed board
+   * @param placements the packed blocks of each placement
+   * @param count      number of placements to try
+   * @param results    where to put the results, with room for every placement
+   */
+  @Override
+  public void evaluate(long board, long[] placements, int count, Results results) {
+    evaluateFrom(board, placements, 0, count, results);
+  }
+
+  /**
+   * Try some of the placements on a board, one at a time
+   *
+   * @param board      the packed board
+   * @param placements the packed blocks of each placement
+   * @param from       the first placement to try
+   * @param to         the placement after the last to try
+   * @param results    where to put the results, with room for every placement
+   */
+  void evaluateFrom(long board, long[] placements, int from, int to, Results results) {
+    for (int i = from; i < to; i++) {
+      long mask = placements[i];
+      if ((board & mask) != 0) {
+        results.scores[i] = Double.NEGATIVE_INFINITY;
+        results.lines[i] = 0;
+        results.blocks[i] = 0;
+        continue;
+      }
+
+      //Play the piece and clear the full lines
+      long filled = board | mask;
+      long cleared = 0;
+      int lineCount = 0;
+      for (long line : lines) {
+        if ((filled & line) == line) {
+          cleared |= line;
+          lineCount++;
+        }
+      }
+      long after = filled & ~cleared;
+
+      //Features of the board left behind
+      int blocks = Long.bitCount(after);
+      int edges = Long.bitCount((after ^ (after >>> 1)) & ~lastCol & full)
+          + Long.bitCount((after ^ (after >>> cols)) & ~lastRow & full);
+      long left = (after << 1) & ~firstCol | firstCol;
+      long right = (after >>> 1) & ~lastCol | lastCol;
+      long up = (after << cols) | firstRow;
+      long down = (after >>> cols) | lastRow;
+      int holes = Long.bitCount(~after & full & left & right & up & down);
+
+      results.scores[i] = -(filledWeight * blocks + edgesWeight * edges + holesWeight * holes);
+      results.lines[i] = lineCount;
+      results.blocks[i] = Long.bitCount(cleared);
+    }
+  }
+}
@@ -0,0 +1,114 @@
+package uk.ac.soton.comp1206.ai;
+
+import uk.ac.soton.comp1206.game.Game;
+import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.game.Grid;
+
+/**
+ * A MovePolicy that plays from a ValueTable. Every placement of the current piece, and of the
+ * following piece after a swap, is scored by the points it earns plus the value in the table of the
+ * grid left behind, and the best is chosen. Choosing a move only looks up one value per placement,
+ * so it takes the same short time however far ahead the table looks.
+ * <p>
+ * A TablePlayer is not thread safe, each game should use its own, but they can share a table.
+ */
+public class TablePlayer implements MovePolicy {
+
+  /**
+   * The values of every grid
+   */
+  private final ValueTable table;
+
+  /**
+   * Grid to try each placement on
+   */
+  private final Grid scratch;
+
+  /**
+   * Buffer for the legal placements
+   */
+  private final long[] legal;
+
+  /**
+   * Buffer for the full lines
+   */
+  private final long[] clearMask;
+
+  /**
+   * Create a new TablePlayer
+   *
+   * @param table the values of every grid
+   */
+  public TablePlayer(ValueTable table) {
+    this.table = table;
+    this.scratch = new Grid(table.getCols(), table.getRows());
+    this.legal = new long[GamePiece.ROTATIONS * table.getRows()];
+    this.clearMask = new long[table.getRows()];
+  }
+
+  /**
+   * Choose the placement that leads to the most points by the table
+   *
+   * @param game the game to choose a move in, on a board the size of the table
+   * @return the move, or null if neither piece can be played anywhere
+   */
+  @Override
+  public Move chooseMove(Game game) {
+    Grid grid = game.getGrid();
+    if (grid.getCols() != table.getCols() || grid.getRows() != table.getRows()) {
+      throw new IllegalArgumentException("Value table is for a different board size");
+    }
+
+    Move best = null;
+    double bestValue = Double.NEGATIVE_INFINITY;
+    for (int swap = 0; swap < 2; swap++) {
+      var piece = swap == 0 ? game.getCurrentPiece() : game.getFollowingPiece();
+      if (piece == null || grid.findPlacements(piece, legal) == 0) {
+        continue;
+      }
+
+      int rows = grid.getRows();
+      for (int i = 0; i < legal.length; i++) {
+        var rotated = GamePiece.createPiece(piece.getPiece(), i / rows);
+        for (long placements = legal[i]; placements != 0; placements &= placements - 1) {
+          int x = Long.numberOfTrailingZeros(placements);
+          double value = place(grid, rotated, x, i % rows, game.getMultiplier());
+          if (value > bestValue) {
+            bestValue = value;
+            best = new Move(swap == 1, i / rows, x, i % rows);
+          }
+        }
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Play a piece on a copy of the grid and clear any full lines
+   *
+   * @return the points earned plus the value of the grid left behind
+   */
+  private double place(Grid grid, GamePiece piece, int x, int y, int multiplier) {
+    scratch.copyFrom(grid);
+    scratch.playPiece(piece, x, y);
+
+    int points = 0;
+    int lines = scratch.findFullLines(piece, x, y, clearMask);
+    if (lines > 0) {
+      points = Game.lineScore(lines, Grid.countBlocks(clearMask), multiplier);
+      scratch.clear(clearMask);
+    }
+    return points + table.getValue(scratch);
+  }
+
+  /**
+   * Return a string representation of this TablePlayer
+   *
+   * @return string representation
+   */
+  @Override
+  public String toString() {
+    return "TablePlayer [" + table.getCols() + "x" + table.getRows() + ", horizon = "
+        + table.getHorizon() + "]";
+  }
+}
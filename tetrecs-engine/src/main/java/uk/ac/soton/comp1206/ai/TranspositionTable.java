@@ -0,0 +1,252 @@
+package uk.ac.soton.comp1206.ai;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * A TranspositionTable remembers what a search found out about positions it has already searched,
+ * keyed by a 64-bit hash of the position. Positions come back often, as clearing lines returns the
+ * grid to positions seen before.
+ * <p>
+ * The table has a fixed number of entries, set from the memory it may use, and never grows. Each
+ * key can only be stored in a few entries next to each other. When they are all taken the entry
+ * replaced is the one left by the oldest search, or the shallowest if they are all as old.
+ * <p>
+ * Each entry packs the evaluation, depth, age and best move into one long, and stores it along with
+ * the key XORed with it. Search threads can read and write the table at the same time without
+ * locks: an entry half written by another thread fails the key check and reads as missing.
+ */
+public class TranspositionTable {
+
+  /**
+   * The memory the players use for their table unless told otherwise
+   */
+  public static final int DEFAULT_MEGABYTES = 1;
+
+  /**
+   * The size in bytes of one entry
+   */
+  private static final int ENTRY_BYTES = 2 * Long.BYTES;
+
+  /**
+   * The number of entries next to each other a key can be stored in
+   */
+  private static final int PROBES = 4;
+
+  /**
+   * The greatest depth an entry can record
+   */
+  public static final int MAX_DEPTH = 0xFF;
+
+  /**
+   * Number of distinct ages before they wrap around
+   */
+  private static final int AGES = 0x80;
+
+  /**
+   * Position of each field in an entry: the evaluation as a float in the low 32 bits, then depth,
+   * age, a bit marking the entry as used, and the best move
+   */
+  private static final int DEPTH_SHIFT = 32;
+  private static final int AGE_SHIFT = 40;
+  private static final long USED = 1L << 47;
+  private static final int MOVE_SHIFT = 48;
+
+  /**
+   * Bits of a packed move: x and y in 6 bits each, the rotation, whether to swap, and a bit
+   * marking that there is a move
+   */
+  private static final int MOVE_Y_SHIFT = 6;
+  private static final int MOVE_ROTATION_SHIFT = 12;
+  private static final int MOVE_SWAP = 1 << 14;
+  private static final int MOVE_PRESENT = 1 << 15;
+  private static final int MOVE_COORDINATE = 0x3F;
+
+  /**
+   * Reads and writes the table as whole longs, so another thread never sees half a long
+   */
+  private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(long[].class);
+
+  /**
+   * The entries, two longs each: the key XORed with the data, then the data
+   */
+  private final long[] table;
+
+  /**
+   * Number of entries minus one, for finding the entry of a key
+   */
+  private final int mask;
+
+  /**
+   * Age of the current search
+   */
+  private volatile int age;
+
+  /**
+   * Create a new TranspositionTable
+   *
+   * @param megabytes the most memory the table may use
+   */
+  public TranspositionTable(int megabytes) {
+    //The largest power of two entries that fits
+    long fit = Math.min((long) megabytes << 20, Integer.MAX_VALUE / 2L * Long.BYTES) / ENTRY_BYTES;
+    if (fit < PROBES) {
+      throw new IllegalArgumentException("Transposition table needs at least 1 megabyte");
+    }
+    int entries = Integer.highestOneBit((int) fit);
+    table = new long[2 * entries];
+    mask = entries - 1;
+  }
+
+  /**
+   * Start a new search, so entries left by earlier searches are replaced first
+   */
+  public void newSearch() {
+    age = (age + 1) % AGES;
+  }
+
+  /**
+   * Look up a position
+   *
+   * @param key hash of the position
+   * @return the packed entry, or 0 if the position is not in the table
+   */
+  public long probe(long key) {
+    int index = (int) key & mask;
+    for (int i = 0; i < PROBES; i++) {
+      int slot = 2 * ((index + i) & mask);
+      long data = (long) SLOTS.getOpaque(table, slot + 1);
+      if (data != 0 && ((long) SLOTS.getOpaque(table, slot) ^ data) == key) {
+        return data;
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Store what a search found out about a position. An entry for the same position from the same
+   * search is only replaced by a search at least as deep
+   *
+   * @param key   hash of the position
+   * @param eval  the evaluation of the position
+   * @param depth how deep the search went, up to {@link #MAX_DEPTH}
+   * @param move  the best move from the position, or null if there is none
+   */
+  public void store(long key, double eval, int depth, Move move) {
+    int current = age;
+    int index = (int) key & mask;
+    int victim = -1;
+    int victimScore = Integer.MIN_VALUE;
+
+    for (int i = 0; i < PROBES; i++) {
+      int slot = 2 * ((index + i) & mask);
+      long data = (long) SLOTS.getOpaque(table, slot + 1);
+      if (data == 0) {
+        //Empty entry
+        victim = slot;
+        break;
+      }
+      if (((long) SLOTS.getOpaque(table, slot) ^ data) == key) {
+        //Same position, keep a deeper result from this search
+        if (getAge(data) == current && getDepth(data) > depth) {
+          return;
+        }
+        victim = slot;
+        break;
+      }
+
+      //Older first, then shallower
+      int score = Math.floorMod(current - getAge(data), AGES) * (MAX_DEPTH + 1) - getDepth(data);
+      if (score > victimScore) {
+        victimScore = score;
+        victim = slot;
+      }
+    }
+
+    long data = Integer.toUnsignedLong(Float.floatToRawIntBits((float) eval))
+        | (long) Math.min(depth, MAX_DEPTH) << DEPTH_SHIFT
+        | (long) current << AGE_SHIFT
+        | USED
+        | (long) packMove(move) << MOVE_SHIFT;
+    SLOTS.setOpaque(table, victim + 1, data);
+    SLOTS.setOpaque(table, victim, key ^ data);
+  }
+
+  /**
+   * Forget every entry
+   */
+  public void clear() {
+    for (int i = 0; i < table.length; i++) {
+      SLOTS.setOpaque(table, i, 0L);
+    }
+  }
+
+  /**
+   * Get the number of entries the table holds
+   *
+   * @return number of entries
+   */
+  public int getCapacity() {
+    return mask + 1;
+  }
+
+  /**
+   * Get the evaluation of a packed entry
+   *
+   * @param data the packed entry
+   * @return the evaluation
+   */
+  public static double getEval(long data) {
+    return Float.intBitsToFloat((int) data);
+  }
+
+  /**
+   * Get the depth of a packed entry
+   *
+   * @param data the packed entry
+   * @return the depth
+   */
+  public static int getDepth(long data) {
+    return (int) (data >>> DEPTH_SHIFT) & MAX_DEPTH;
+  }
+
+  /**
+   * Get the best move of a packed entry
+   *
+   * @param data the packed entry
+   * @return the move, or null if there is none
+   */
+  public static Move getMove(long data) {
+    int move = (int) (data >>> MOVE_SHIFT);
+    if ((move & MOVE_PRESENT) == 0) {
+      return null;
+    }
+    return new Move((move & MOVE_SWAP) != 0, (move >>> MOVE_ROTATION_SHIFT) & 3,
+        move & MOVE_COORDINATE, (move >>> MOVE_Y_SHIFT) & MOVE_COORDINATE);
+  }
+
+  /**
+   * Get the age of a packed entry
+   *
+   * @param data the packed entry
+   * @return the age
+   */
+  private static int getAge(long data) {
+    return (int) (data >>> AGE_SHIFT) & (AGES - 1);
+  }
+
+  /**
+   * Pack a move into 16 bits. Moves too far out to pack are not stored
+   *
+   * @param move the move, or null
+   * @return the packed move
+   */
+  private static int packMove(Move move) {
+    if (move == null || move.getX() < 0 || move.getX() > MOVE_COORDINATE || move.getY() < 0
+        || move.getY() > MOVE_COORDINATE) {
+      return 0;
+    }
+    return MOVE_PRESENT | (move.isSwap() ? MOVE_SWAP : 0) | move.getRotation() << MOVE_ROTATION_SHIFT
+        | move.getY() << MOVE_Y_SHIFT | move.getX();
+  }
+}
@@ -0,0 +1,193 @@
+package uk.ac.soton.comp1206.ai;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import uk.ac.soton.comp1206.game.Grid;
+
+/**
+ * A ValueTable holds the value of every possible grid of a small board, as worked out by the
+ * RetrogradeSolver: the points expected from the grid over the next few pieces when playing as well
+ * as possible. A grid is looked up by packing its blocks into an int, bit y * cols + x for the block
+ * at x, y.
+ * <p>
+ * The table is stored in a file made of a header of four ints (a magic number, the columns, the
+ * rows and the number of pieces looked ahead) followed by one float per grid, all little endian.
+ * Loading maps the file into memory rather than reading it, so it is quick however large the table
+ * is, and the values can be read from any number of threads.
+ */
+public class ValueTable {
+
+  /**
+   * Most blocks a board can have for its table to be stored
+   */
+  public static final int MAX_CELLS = 28;
+
+  /**
+   * First int of a table file
+   */
+  private static final int MAGIC = 0x54564C31;
+
+  /**
+   * The size in bytes of the header of a table file
+   */
+  private static final int HEADER_BYTES = 4 * Integer.BYTES;
+
+  /**
+   * Number of columns of the board
+   */
+  private final int cols;
+
+  /**
+   * Number of rows of the board
+   */
+  private final int rows;
+
+  /**
+   * Number of pieces looked ahead
+   */
+  private final int horizon;
+
+  /**
+   * The value of each grid
+   */
+  private final FloatBuffer values;
+
+  /**
+   * Create a new ValueTable
+   *
+   * @param cols    number of columns of the board
+   * @param rows    number of rows of the board
+   * @param horizon number of pieces looked ahead
+   * @param values  the value of each grid
+   */
+  private ValueTable(int cols, int rows, int horizon, FloatBuffer values) {
+    this.cols = cols;
+    this.rows = rows;
+    this.horizon = horizon;
+    this.values = values;
+  }
+
+  /**
+   * Load a table by mapping its file into memory
+   *
+   * @param file the table file
+   * @return the table
+   * @throws IOException if the file cannot be read or is not a table
+   */
+  public static ValueTable load(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+      if (channel.size() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+        throw new IOException("Not a value table: " + file);
+      }
+      int cols = buffer.getInt(Integer.BYTES);
+      int rows = buffer.getInt(2 * Integer.BYTES);
+      int horizon = buffer.getInt(3 * Integer.BYTES);
+      if (cols < 1 || rows < 1 || cols * rows > MAX_CELLS
+          || channel.size() != HEADER_BYTES + ((long) Float.BYTES << (cols * rows))) {
+        throw new IOException("Value table is the wrong size: " + file);
+      }
+
+      //The mapping stays valid after the channel is closed
+      FloatBuffer values = buffer.position(HEADER_BYTES).slice().order(ByteOrder.LITTLE_ENDIAN)
+          .asFloatBuffer();
+      return new ValueTable(cols, rows, horizon, values);
+    }
+  }
+
+  /**
+   * Write a table to a file
+   *
+   * @param file    the table file
+   * @param cols    number of columns of the board
+   * @param rows    number of rows of the board
+   * @param horizon number of pieces looked ahead
+   * @param values  the value of each grid
+   * @throws IOException if the file cannot be written
+   */
+  public static void write(Path file, int cols, int rows, int horizon, float[] values)
+      throws IOException {
+    if (cols * rows > MAX_CELLS || values.length != 1 << (cols * rows)) {
+      throw new IllegalArgumentException("Need one value for every grid");
+    }
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+          HEADER_BYTES + (long) Float.BYTES * values.length);
+      buffer.order(ByteOrder.LITTLE_ENDIAN);
+      buffer.putInt(MAGIC).putInt(cols).putInt(rows).putInt(horizon);
+      ByteBuffer body = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+      body.asFloatBuffer().put(values);
+      buffer.force();
+    }
+  }
+
+  /**
+   * Pack the blocks of a grid into an int, bit y * cols + x for the block at x, y
+   *
+   * @param grid the grid
+   * @return the packed grid
+   */
+  public static int pack(Grid grid) {
+    int board = 0;
+    for (int y = 0; y < grid.getRows(); y++) {
+      board |= (int) grid.getRowBits(y) << (y * grid.getCols());
+    }
+    return board;
+  }
+
+  /**
+   * Get the value of a grid
+   *
+   * @param board the packed grid
+   * @return the points expected from the grid
+   */
+  public float getValue(int board) {
+    return values.get(board);
+  }
+
+  /**
+   * Get the value of a grid
+   *
+   * @param grid the grid, the size of the board of the table
+   * @return the points expected from the grid
+   */
+  public float getValue(Grid grid) {
+    return values.get(pack(grid));
+  }
+
+  /**
+   * Get the number of columns of the board
+   *
+   * @return number of columns
+   */
+  public int getCols() {
+    return cols;
+  }
+
+  /**
+   * Get the number of rows of the board
+   *
+   * @return number of rows
+   */
+  public int getRows() {
+    return rows;
+  }
+
+  /**
+   * Get the number of pieces looked ahead
+   *
+   * @return number of pieces
+   */
+  public int getHorizon() {
+    return horizon;
+  }
+}
@@ -0,0 +1,208 @@
+package uk.ac.soton.comp1206.ai;
+
+import java.util.Arrays;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * A BatchEvaluator that tries as many placements at a time as the CPU has long lanes, using the
+ * Vector API. Placements left over at the end of a batch are tried one at a time.
+ * <p>
+ * The work is done in passes over the batch, one to play the pieces and clear the lines, one to
+ * count the edges of the boards left behind and one to score them, keeping what is needed in between
+ * in arrays. Done in one loop the compiler gives up inlining the vector operations before the end,
+ * and every vector left over is made as an object, which is slower than not using vectors at all.
+ * <p>
+ * On JDK 17 this is still slower than the plain version, which counts blocks with the CPU's own
+ * instruction one long at a time. BatchBenchmark compares the two.
+ * <p>
+ * There is no vector bit count until a later JDK, so blocks are counted by adding up neighbouring
+ * bits in a few shifts and masks.
+ */
+class VectorBatchEvaluator extends BatchEvaluator {
+
+  /**
+   * The shape of the long vectors used
+   */
+  private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+
+  /**
+   * The shape of the double vectors used, with the same number of lanes
+   */
+  private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+
+  /**
+   * Tries the placements left over at the end of a batch
+   */
+  private final ScalarBatchEvaluator tail;
+
+  /**
+   * The board left behind by each placement, between the passes
+   */
+  private long[] after = new long[0];
+
+  /**
+   * The edges of the board left behind by each placement, between the passes
+   */
+  private long[] edges = new long[0];
+
+  /**
+   * Space for moving the counts out of the vectors
+   */
+  private final long[] lineCounts = new long[LONGS.length()];
+  private final long[] blockCounts = new long[LONGS.length()];
+
+  /**
+   * Create a new VectorBatchEvaluator
+   *
+   * @param cols    number of columns of the board
+   * @param rows    number of rows of the board
+   * @param weights weights of the features of the board left behind
+   */
+  VectorBatchEvaluator(int cols, int rows, WeightedEvaluator weights) {
+    super(cols, rows, weights);
+    this.tail = new ScalarBatchEvaluator(cols, rows, weights);
+  }
+
+  /**
+   * Try every placement on a board, a vector of placements at a time. Not thread safe
+   *
+   * @param board      the packed board
+   * @param placements the packed blocks of each placement
+   * @param count      number of placements to try
+   * @param results    where to put the results, with room for every placement
+   */
+  @Override
+  public void evaluate(long board, long[] placements, int count, Results results) {
+    int bound = LONGS.loopBound(count);
+    if (after.length < bound) {
+      after = Arrays.copyOf(after, bound);
+      edges = Arrays.copyOf(edges, bound);
+    }
+
+    clearLines(board, placements, bound, results);
+    countEdges(bound);
+    score(board, placements, bound, results);
+
+    //The placements left over
+    if (bound < count) {
+      tail.evaluateFrom(board, placements, bound, count, results);
+    }
+  }
+
+  /**
+   * Play each piece and clear the full lines, keeping the board left behind
+   *
+   * @param board      the packed board
+   * @param placements the packed blocks of each placement
+   * @param bound      number of placements to play, a whole number of vectors
+   * @param results    where to put the lines and blocks cleared
+   */
+  private void clearLines(long board, long[] placements, int bound, Results results) {
+    var boards = LongVector.broadcast(LONGS, board);
+    var ones = LongVector.broadcast(LONGS, 1);
+
+    for (int i = 0; i < bound; i += LONGS.length()) {
+      var masks = LongVector.fromArray(LONGS, placements, i);
+      var fits = ones.sub(nonZero(boards.and(masks)));
+
+      //Counted as 1 or 0 rather than with vector masks, which are slow to carry round the loop.
+      //Placements that do not fit clear nothing
+      var filled = boards.or(masks);
+      var cleared = LongVector.zero(LONGS);
+      var lineCount = LongVector.zero(LONGS);
+      for (long line : lines) {
+        var isFull = ones.sub(nonZero(filled.and(line).lanewise(VectorOperators.XOR, line)))
+            .and(fits);
+        cleared = cleared.or(isFull.neg().and(line));
+        lineCount = lineCount.add(isFull);
+      }
+      filled.and(cleared.not()).intoArray(after, i);
+
+      lineCount.intoArray(lineCounts, 0);
+      bitCount(cleared).intoArray(blockCounts, 0);
+      for (int lane = 0; lane < LONGS.length(); lane++) {
+        results.lines[i + lane] = (int) lineCounts[lane];
+        results.blocks[i + lane] = (int) blockCounts[lane];
+      }
+    }
+  }
+
+  /**
+   * Count the sides where a block meets an empty space on the board left behind by each placement
+   *
+   * @param bound number of placements to count, a whole number of vectors
+   */
+  private void countEdges(int bound) {
+    for (int i = 0; i < bound; i += LONGS.length()) {
+      var left = LongVector.fromArray(LONGS, after, i);
+      var across = left.lanewise(VectorOperators.LSHR, 1).lanewise(VectorOperators.XOR, left);
+      var downwards = left.lanewise(VectorOperators.LSHR, cols)
+          .lanewise(VectorOperators.XOR, left);
+      bitCount(across.and(~lastCol & full)).add(bitCount(downwards.and(~lastRow & full)))
+          .intoArray(edges, i);
+    }
+  }
+
+  /**
+   * Score the board left behind by each placement
+   *
+   * @param board      the packed board
+   * @param placements the packed blocks of each placement
+   * @param bound      number of placements to score, a whole number of vectors
+   * @param results    where to put the scores
+   */
+  private void score(long board, long[] placements, int bound, Results results) {
+    var boards = LongVector.broadcast(LONGS, board);
+
+    for (int i = 0; i < bound; i += LONGS.length()) {
+      var left = LongVector.fromArray(LONGS, after, i);
+      var enclosed = left.not().and(full)
+          .and(left.lanewise(VectorOperators.LSHL, 1).and(~firstCol).or(firstCol))
+          .and(left.lanewise(VectorOperators.LSHR, 1).and(~lastCol).or(lastCol))
+          .and(left.lanewise(VectorOperators.LSHL, cols).or(firstRow))
+          .and(left.lanewise(VectorOperators.LSHR, cols).or(lastRow));
+
+      var blocks = bitCount(left);
+      var holes = bitCount(enclosed);
+
+      var scores = ((DoubleVector) blocks.convert(VectorOperators.L2D, 0)).mul(filledWeight)
+          .add(((DoubleVector) LongVector.fromArray(LONGS, edges, i)
+              .convert(VectorOperators.L2D, 0)).mul(edgesWeight))
+          .add(((DoubleVector) holes.convert(VectorOperators.L2D, 0)).mul(holesWeight))
+          .neg();
+      VectorMask<Long> overlaps = boards.and(LongVector.fromArray(LONGS, placements, i))
+          .compare(VectorOperators.NE, 0);
+      scores.blend(Double.NEGATIVE_INFINITY, overlaps.cast(DOUBLES))
+          .intoArray(results.scores, i);
+    }
+  }
+
+  /**
+   * Find the lanes that are not zero
+   *
+   * @param bits the lanes
+   * @return 1 in each lane that is not zero, 0 in the others
+   */
+  private static LongVector nonZero(LongVector bits) {
+    return bits.or(bits.neg()).lanewise(VectorOperators.LSHR, 63);
+  }
+
+  /**
+   * Count the set bits of each lane
+   *
+   * @param bits the lanes
+   * @return the number of bits set in each lane
+   */
+  private static LongVector bitCount(LongVector bits) {
+    //Count pairs, then fours, then bytes, then add the bytes together with a multiply
+    var x = bits.sub(bits.lanewise(VectorOperators.LSHR, 1).and(0x5555555555555555L));
+    x = x.and(0x3333333333333333L)
+        .add(x.lanewise(VectorOperators.LSHR, 2).and(0x3333333333333333L));
+    x = x.add(x.lanewise(VectorOperators.LSHR, 4)).and(0x0F0F0F0F0F0F0F0FL);
+    return x.mul(0x0101010101010101L).lanewise(VectorOperators.LSHR, 56);
+  }
+}
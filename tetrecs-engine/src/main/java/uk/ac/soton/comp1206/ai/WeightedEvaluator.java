@@ -0,0 +1,131 @@
+package uk.ac.soton.comp1206.ai;
+
+import uk.ac.soton.comp1206.game.Grid;
+
+/**
+ * A BoardEvaluator that adds up a few features of the grid, each with its own weight:
+ * <ul>
+ *   <li>filled: the number of blocks on the grid</li>
+ *   <li>edges: the number of sides where a block meets an empty space, a measure of how broken up
+ *   the empty space is</li>
+ *   <li>holes: the number of empty spaces blocked in on every side, which only the smallest pieces
+ *   can fill</li>
+ * </ul>
+ * Every feature is bad to have, so the score is minus the weighted total.
+ */
+public class WeightedEvaluator implements BoardEvaluator {
+
+  /**
+   * The weights the players use unless given others
+   */
+  public static final WeightedEvaluator DEFAULT = new WeightedEvaluator(1, 1, 4);
+
+  /**
+   * Weight of each block on the grid
+   */
+  private final double filled;
+
+  /**
+   * Weight of each side where a block meets an empty space
+   */
+  private final double edges;
+
+  /**
+   * Weight of each empty space blocked in on every side
+   */
+  private final double holes;
+
+  /**
+   * Create a new WeightedEvaluator
+   *
+   * @param filled weight of each block on the grid
+   * @param edges  weight of each side where a block meets an empty space
+   * @param holes  weight of each empty space blocked in on every side
+   */
+  public WeightedEvaluator(double filled, double edges, double holes) {
+    this.filled = filled;
+    this.edges = edges;
+    this.holes = holes;
+  }
+
+  /**
+   * Score a grid by its weighted features
+   *
+   * @param grid grid to score
+   * @return minus the weighted total of the features
+   */
+  @Override
+  public double evaluate(Grid grid) {
+    int cols = grid.getCols();
+    int rows = grid.getRows();
+    long fullRow = cols == Grid.MAX_COLS ? -1L : (1L << cols) - 1;
+    //Columns that have a column to their right
+    long inner = fullRow >>> 1;
+
+    int filledCount = 0;
+    int edgeCount = 0;
+    int holeCount = 0;
+
+    long above = fullRow;
+    long row = grid.getRowBits(0);
+    for (int y = 0; y < rows; y++) {
+      //Outside the grid counts as blocked
+      long below = y + 1 < rows ? grid.getRowBits(y + 1) : fullRow;
+
+      filledCount += Long.bitCount(row);
+      //Neighbouring columns that differ, and the row below where it differs
+      edgeCount += Long.bitCount((row ^ (row >>> 1)) & inner);
+      if (y + 1 < rows) {
+        edgeCount += Long.bitCount(row ^ below);
+      }
+
+      //Empty spaces with a block or the edge on every side
+      long left = (row << 1) | 1;
+      long right = (row >>> 1) | ~inner;
+      holeCount += Long.bitCount(~row & left & right & above & below & fullRow);
+
+      above = row;
+      row = below;
+    }
+
+    return -(filled * filledCount + edges * edgeCount + holes * holeCount);
+  }
+
+  /**
+   * Get the weight of each block on the grid
+   *
+   * @return the weight
+   */
+  public double getFilled() {
+    return filled;
+  }
+
+  /**
+   * Get the weight of each side where a block meets an empty space
+   *
+   * @return the weight
+   */
+  public double getEdges() {
+    return edges;
+  }
+
+  /**
+   * Get the weight of each empty space blocked in on every side
+   *
+   * @return the weight
+   */
+  public double getHoles() {
+    return holes;
+  }
+
+  /**
+   * Return a string representation of this WeightedEvaluator
+   *
+   * @return string representation
+   */
+  @Override
+  public String toString() {
+    return "WeightedEvaluator [filled = " + filled + ", edges = " + edges + ", holes = " + holes
+        + "]";
+  }
+}
@@ -0,0 +1,17 @@
+package uk.ac.soton.comp1206.event;
+
+import uk.ac.soton.comp1206.game.EndReason;
+
+/**
+ * The End Game listener is used to handle the event when game ends. The reason the game ended is
+ * passed
+ */
+public interface EndGameListener {
+
+  /**
+   * Handle the game ending
+   *
+   * @param reason why the game ended
+   */
+  void endGame(EndReason reason);
+}
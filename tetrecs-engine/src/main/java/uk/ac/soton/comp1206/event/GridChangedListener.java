@@ -0,0 +1,17 @@
+package uk.ac.soton.comp1206.event;
+
+/**
+ * The Grid Changed listener is used to handle the event when the value of a block in a Grid
+ * changes. It passes the position of the block and its new value
+ */
+public interface GridChangedListener {
+
+  /**
+   * Handle a block in the grid changing value
+   *
+   * @param x     column of the block
+   * @param y     row of the block
+   * @param value the new value of the block
+   */
+  void gridChanged(int x, int y, int value);
+}
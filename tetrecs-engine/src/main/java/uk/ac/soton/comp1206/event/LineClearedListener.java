@@ -0,0 +1,19 @@
+package uk.ac.soton.comp1206.event;
+
+/**
+ * The Line Cleared listener is used to handle the event a vertical or horizontal line is cleared
+ * from the game
+ */
+
+public interface LineClearedListener {
+
+  /**
+   * Handles what blocks to clear when connect 5. The array is reused by the game for the next
+   * placement, so it should not be kept after this call returns
+   *
+   * @param blocks the blocks to clear, one bitmask per row where bit x is set if the block at x is
+   *               cleared
+   */
+  void lineCleared(long[] blocks);
+
+}
@@ -0,0 +1,15 @@
+package uk.ac.soton.comp1206.event;
+
+/**
+ * The Sound listener is used to handle the event when the game wants a sound effect played. The
+ * name of the sound file is passed in the message
+ */
+public interface SoundListener {
+
+  /**
+   * Handle playing a sound effect
+   *
+   * @param sound name of the sound
+   */
+  void playSound(String sound);
+}
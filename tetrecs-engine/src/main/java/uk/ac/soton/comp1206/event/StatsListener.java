@@ -0,0 +1,18 @@
+package uk.ac.soton.comp1206.event;
+
+/**
+ * The Stats listener is used to handle the event when the score, level, lives or multiplier of the
+ * game change. All four are passed so the UI can update them together
+ */
+public interface StatsListener {
+
+  /**
+   * Handle the stats of the game changing
+   *
+   * @param score      the score
+   * @param level      the level
+   * @param lives      the lives left
+   * @param multiplier the multiplier
+   */
+  void statsChanged(int score, int level, int lives, int multiplier);
+}
@@ -0,0 +1,519 @@
+package uk.ac.soton.comp1206.game;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+
+/**
+ * A BoardPool holds the state of many games off the heap, for simulations that run too many games
+ * at once to keep a Game and Grid for each. Every part of the state is kept in its own direct
+ * buffer with one entry per game, so a pool of any size is a handful of objects for the garbage
+ * collector and a fixed amount of native memory, {@link #BYTES_PER_GAME} per game.
+ * <p>
+ * Each game keeps its grid packed into a long, bit y * cols + x for the block at x, y, so the board
+ * has at most 64 blocks. The score, level, lives, multiplier, current and following piece and
+ * number of moves are kept as in a Game, and the rules for playing a piece, swapping and timing out
+ * are the same. Pieces are only kept by number: every rotation of a piece can be played, so the
+ * rotation it spawns in does not matter. Each game draws its pieces from its own random state,
+ * worked out from its seed.
+ * <p>
+ * Pieces are played by the packed blocks they cover, from {@link #getPlacements}. Different games
+ * can be played on different threads at once, but one game must only be used by one thread at a
+ * time.
+ */
+public class BoardPool {
+
+  /**
+   * The number of bytes of native memory used by each game
+   */
+  public static final int BYTES_PER_GAME = 2 * Long.BYTES + 2 * Integer.BYTES + 2 * Short.BYTES
+      + 4 * Byte.BYTES;
+
+  /**
+   * The lives a game starts with
+   */
+  public static final int START_LIVES = 3;
+
+  /**
+   * The end reason of a game that is still being played
+   */
+  private static final byte PLAYING = -1;
+
+  /**
+   * Added to the random state of a game for each piece
+   */
+  private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+  /**
+   * Number of columns of the board
+   */
+  private final int cols;
+
+  /**
+   * Number of rows of the board
+   */
+  private final int rows;
+
+  /**
+   * Number of games in the pool
+   */
+  private final int capacity;
+
+  /**
+   * The blocks of every row, then every column
+   */
+  private final long[] lines;
+
+  /**
+   * The blocks covered by each placement of each piece in any rotation, without repeats
+   */
+  private final long[][] placements;
+
+  /**
+   * The packed grid of each game
+   */
+  private final LongBuffer boards;
+
+  /**
+   * The random state each game draws its pieces from
+   */
+  private final LongBuffer randoms;
+
+  /**
+   * The score of each game
+   */
+  private final IntBuffer scores;
+
+  /**
+   * The number of moves made in each game
+   */
+  private final IntBuffer moves;
+
+  /**
+   * The level of each game
+   */
+  private final ShortBuffer levels;
+
+  /**
+   * The multiplier of each game
+   */
+  private final ShortBuffer multipliers;
+
+  /**
+   * The lives left in each game
+   */
+  private final ByteBuffer lives;
+
+  /**
+   * The number of the current piece of each game
+   */
+  private final ByteBuffer currentPieces;
+
+  /**
+   * The number of the following piece of each game
+   */
+  private final ByteBuffer followingPieces;
+
+  /**
+   * The ordinal of the EndReason of each game, or PLAYING
+   */
+  private final ByteBuffer endReasons;
+
+  /**
+   * Create a new BoardPool. Every game starts ended, until it is reset
+   *
+   * @param cols     number of columns of the board
+   * @param rows     number of rows of the board
+   * @param capacity number of games
+   */
+  public BoardPool(int cols, int rows, int capacity) {
+    if (cols < 1 || rows < 1 || cols * rows > Long.SIZE) {
+      throw new IllegalArgumentException("Board must have at most " + Long.SIZE + " blocks");
+    }
+    if (capacity < 0 || capacity > Integer.MAX_VALUE / Long.BYTES) {
+      throw new IllegalArgumentException("Pool can hold at most "
+          + Integer.MAX_VALUE / Long.BYTES + " games: " + capacity);
+    }
+    this.cols = cols;
+    this.rows = rows;
+    this.capacity = capacity;
+
+    boards = allocate(capacity, Long.BYTES).asLongBuffer();
+    randoms = allocate(capacity, Long.BYTES).asLongBuffer();
+    scores = allocate(capacity, Integer.BYTES).asIntBuffer();
+    moves = allocate(capacity, Integer.BYTES).asIntBuffer();
+    levels = allocate(capacity, Short.BYTES).asShortBuffer();
+    multipliers = allocate(capacity, Short.BYTES).asShortBuffer();
+    lives = allocate(capacity, Byte.BYTES);
+    currentPieces = allocate(capacity, Byte.BYTES);
+    followingPieces = allocate(capacity, Byte.BYTES);
+    endReasons = allocate(capacity, Byte.BYTES);
+    for (int game = 0; game < capacity; game++) {
+      endReasons.put(game, (byte) EndReason.NO_MOVES.ordinal());
+    }
+
+    //The lines of the board
+    lines = new long[rows + cols];
+    long row = cols == Long.SIZE ? -1L : (1L << cols) - 1;
+    long column = 0;
+    for (int y = 0; y < rows; y++) {
+      lines[y] = row << y * cols;
+      column |= 1L << y * cols;
+    }
+    for (int x = 0; x < cols; x++) {
+      lines[rows + x] = column << x;
+    }
+
+    //Every placement of every piece on the empty board
+    placements = new long[GamePiece.PIECES][];
+    var empty = new Grid(cols, rows);
+    long[] legal = new long[GamePiece.ROTATIONS * rows];
+    for (int piece = 0; piece < GamePiece.PIECES; piece++) {
+      long[] found = new long[empty.findPlacements(GamePiece.createPiece(piece), legal)];
+      int count = 0;
+      for (int i = 0; i < legal.length; i++) {
+        var rotated = GamePiece.createPiece(piece, i / rows);
+        for (long anchors = legal[i]; anchors != 0; anchors &= anchors - 1) {
+          found[count++] = pack(rotated, Long.numberOfTrailingZeros(anchors), i % rows);
+        }
+      }
+      placements[piece] = Arrays.stream(found).distinct().toArray();
+    }
+  }
+
+  /**
+   * Work out how many games fit in a memory budget
+   *
+   * @param megabytes native memory to use
+   * @return number of games
+   */
+  public static int capacityFor(int megabytes) {
+    return (int) Math.min((long) megabytes * 1024 * 1024 / BYTES_PER_GAME,
+        Integer.MAX_VALUE / Long.BYTES);
+  }
+
+  /**
+   * Allocate the direct buffer for one part of the state of every game
+   *
+   * @param capacity number of games
+   * @param bytes    size of the part of one game
+   * @return the buffer
+   */
+  private static ByteBuffer allocate(int capacity, int bytes) {
+    return ByteBuffer.allocateDirect(capacity * bytes).order(ByteOrder.nativeOrder());
+  }
+
+  /**
+   * Pack the blocks a piece covers when played at a place
+   *
+   * @param piece  the piece
+   * @param placeX x location the piece is played at
+   * @param placeY y location the piece is played at
+   * @return the blocks covered
+   */
+  private long pack(GamePiece piece, int placeX, int placeY) {
+    long mask = 0;
+    for (int y = piece.getMinY(); y <= piece.getMaxY(); y++) {
+      mask |= piece.getRowMask(y, placeX - 1) << (placeY - 1 + y) * cols;
+    }
+    return mask;
+  }
+
+  /**
+   * Start a new game, with an empty grid and two new pieces
+   *
+   * @param game number of the game
+   * @param seed seed of the pieces of the game
+   */
+  public void reset(int game, long seed) {
+    boards.put(game, 0);
+    randoms.put(game, seed);
+    scores.put(game, 0);
+    moves.put(game, 0);
+    levels.put(game, (short) 0);
+    multipliers.put(game, (short) 1);
+    lives.put(game, (byte) START_LIVES);
+    currentPieces.put(game, nextPiece(game));
+    followingPieces.put(game, nextPiece(game));
+    endReasons.put(game, PLAYING);
+    checkMoves(game);
+  }
+
+  /**
+   * Play the current piece of a game, clear any full lines and score them, then move on to the
+   * next piece
+   *
+   * @param game      number of the game
+   * @param placement the blocks covered, one of the placements of the current piece
+   * @return whether the piece could be played
+   */
+  public boolean play(int game, long placement) {
+    long board = boards.get(game);
+    if (isOver(game) || (board & placement) != 0) {
+      return false;
+    }
+
+    //Play the piece and clear the lines it fills
+    long filled = board | placement;
+    long cleared = 0;
+    int lineCount = 0;
+    for (long line : lines) {
+      if ((filled & line) == line && (placement & line) != 0) {
+        cleared |= line;
+        lineCount++;
+      }
+    }
+    boards.put(game, filled & ~cleared);
+
+    //Score as the game does
+    int multiplier = multipliers.get(game);
+    int score = scores.get(game)
+        + Game.lineScore(lineCount, Long.bitCount(cleared), multiplier);
+    scores.put(game, score);
+    levels.put(game, (short) (score / 1000));
+    multipliers.put(game, (short) (lineCount > 0 ? multiplier + 1 : 1));
+    moves.put(game, moves.get(game) + 1);
+
+    advance(game);
+    return true;
+  }
+
+  /**
+   * Swap the current and following piece of a game
+   *
+   * @param game number of the game
+   */
+  public void swap(int game) {
+    byte current = currentPieces.get(game);
+    currentPieces.put(game, followingPieces.get(game));
+    followingPieces.put(game, current);
+  }
+
+  /**
+   * Give up on the current piece of a game as if it had timed out, losing a life, or ending the
+   * game if there are none left
+   *
+   * @param game number of the game
+   */
+  public void timeOut(int game) {
+    if (isOver(game)) {
+      return;
+    }
+    int left = lives.get(game);
+    if (left == 0) {
+      endReasons.put(game, (byte) EndReason.OUT_OF_LIVES.ordinal());
+      return;
+    }
+    lives.put(game, (byte) (left - 1));
+    multipliers.put(game, (short) 1);
+    moves.put(game, moves.get(game) + 1);
+    advance(game);
+  }
+
+  /**
+   * Move the following piece of a game to the current and make a new following piece, then end the
+   * game if neither can be played
+   *
+   * @param game number of the game
+   */
+  private void advance(int game) {
+    currentPieces.put(game, followingPieces.get(game));
+    followingPieces.put(game, nextPiece(game));
+    checkMoves(game);
+  }
+
+  /**
+   * End a game if neither the current nor the following piece can be played anywhere
+   *
+   * @param game number of the game
+   */
+  private void checkMoves(int game) {
+    long board = boards.get(game);
+    if (!fits(board, currentPieces.get(game)) && !fits(board, followingPieces.get(game))) {
+      endReasons.put(game, (byte) EndReason.NO_MOVES.ordinal());
+    }
+  }
+
+  /**
+   * Check whether a piece can be played anywhere on a grid
+   *
+   * @param board the packed grid
+   * @param piece number of the piece
+   * @return whether any placement fits
+   */
+  private boolean fits(long board, int piece) {
+    for (long placement : placements[piece]) {
+      if ((board & placement) == 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Draw the next piece of a game from its random state
+   *
+   * @param game number of the game
+   * @return number of the piece
+   */
+  private byte nextPiece(int game) {
+    //One step of SplitMix64
+    long state = randoms.get(game) + GOLDEN_GAMMA;
+    randoms.put(game, state);
+    long z = (state ^ (state >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    z ^= z >>> 31;
+    return (byte) (((z >>> 32) * GamePiece.PIECES) >>> 32);
+  }
+
+  /**
+   * Get the blocks covered by each placement of a piece on the empty grid, in any rotation. The
+   * array is shared and must not be changed
+   *
+   * @param piece number of the piece
+   * @return the packed placements
+   */
+  public long[] getPlacements(int piece) {
+    return placements[piece];
+  }
+
+  /**
+   * Get the number of columns of the board
+   *
+   * @return number of columns
+   */
+  public int getCols() {
+    return cols;
+  }
+
+  /**
+   * Get the number of rows of the board
+   *
+   * @return number of rows
+   */
+  public int getRows() {
+    return rows;
+  }
+
+  /**
+   * Get the number of games in the pool
+   *
+   * @return number of games
+   */
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Get the native memory used by the pool
+   *
+   * @return size in bytes
+   */
+  public long getBytes() {
+    return (long) capacity * BYTES_PER_GAME;
+  }
+
+  /**
+   * Get the packed grid of a game
+   *
+   * @param game number of the game
+   * @return the grid, bit y * cols + x for the block at x, y
+   */
+  public long getBoard(int game) {
+    return boards.get(game);
+  }
+
+  /**
+   * Get the score of a game
+   *
+   * @param game number of the game
+   * @return score
+   */
+  public int getScore(int game) {
+    return scores.get(game);
+  }
+
+  /**
+   * Get the level of a game
+   *
+   * @param game number of the game
+   * @return level
+   */
+  public int getLevel(int game) {
+    return levels.get(game);
+  }
+
+  /**
+   * Get the lives left in a game
+   *
+   * @param game number of the game
+   * @return lives
+   */
+  public int getLives(int game) {
+    return lives.get(game);
+  }
+
+  /**
+   * Get the multiplier of a game
+   *
+   * @param game number of the game
+   * @return multiplier
+   */
+  public int getMultiplier(int game) {
+    return multipliers.get(game);
+  }
+
+  /**
+   * Get the number of moves made in a game, counting pieces that timed out
+   *
+   * @param game number of the game
+   * @return number of moves
+   */
+  public int getMoves(int game) {
+    return moves.get(game);
+  }
+
+  /**
+   * Get the number of the current piece of a game
+   *
+   * @param game number of the game
+   * @return number of the piece
+   */
+  public int getCurrentPiece(int game) {
+    return currentPieces.get(game);
+  }
+
+  /**
+   * Get the number of the following piece of a game
+   *
+   * @param game number of the game
+   * @return number of the piece
+   */
+  public int getFollowingPiece(int game) {
+    return followingPieces.get(game);
+  }
+
+  /**
+   * Check whether a game has ended
+   *
+   * @param game number of the game
+   * @return whether it has ended
+   */
+  public boolean isOver(int game) {
+    return endReasons.get(game) != PLAYING;
+  }
+
+  /**
+   * Get the reason a game ended
+   *
+   * @param game number of the game
+   * @return the reason, or null if it has not ended
+   */
+  public EndReason getEndReason(int game) {
+    byte reason = endReasons.get(game);
+    return reason == PLAYING ? null : EndReason.values()[reason];
+  }
+}
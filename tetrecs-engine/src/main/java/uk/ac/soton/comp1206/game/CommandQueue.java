@@ -0,0 +1,140 @@
+package uk.ac.soton.comp1206.game;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A CommandQueue runs the commands given to one game one at a time, in the order they were
+ * submitted, so the game is only ever changed by one thread and needs no locks. Any thread can
+ * submit a command. Commands are run in batches on the owner: up to {@link #MAX_BATCH} waiting
+ * commands are run in one go, then the queue's batch task runs once, for example to hand everything
+ * the batch changed to the UI.
+ * <p>
+ * Only one batch of a queue runs at a time, so many games can share one owner thread without any
+ * game being changed by two threads at once. A queue that still has commands after a batch goes to
+ * the back of the owner's queue, so a busy game does not hold up the others.
+ * <p>
+ * The waiting commands are kept in an ArrayDeque that reuses its array, behind a lock held only to
+ * add or take one, so submitting a command allocates nothing once the queue has grown to fit.
+ */
+public class CommandQueue {
+
+  private static final Logger logger = LogManager.getLogger(CommandQueue.class);
+
+  /**
+   * The most commands run in one batch
+   */
+  public static final int MAX_BATCH = 256;
+
+  /**
+   * The owner shared by every game that is not given another, a single daemon thread
+   */
+  static final ExecutorService SHARED_OWNER = Executors.newSingleThreadExecutor(task -> {
+    Thread thread = new Thread(task, "Game commands");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  /**
+   * The commands waiting to be run, locked on itself
+   */
+  private final ArrayDeque<Runnable> commands = new ArrayDeque<>();
+
+  /**
+   * Whether a batch has been handed to the owner and not yet finished
+   */
+  private final AtomicBoolean scheduled = new AtomicBoolean();
+
+  /**
+   * Runs the batches
+   */
+  private final Executor owner;
+
+  /**
+   * Run at the end of every batch
+   */
+  private final Runnable afterBatch;
+
+  /**
+   * Runs a batch, made once rather than for every batch handed to the owner
+   */
+  private final Runnable batch = this::runBatch;
+
+  /**
+   * Create a new CommandQueue
+   *
+   * @param owner      runs the batches, one at a time
+   * @param afterBatch run on the owner at the end of every batch
+   */
+  public CommandQueue(Executor owner, Runnable afterBatch) {
+    this.owner = owner;
+    this.afterBatch = afterBatch;
+  }
+
+  /**
+   * Add a command to the queue, starting a batch if none is waiting to run
+   *
+   * @param command the command
+   */
+  public void submit(Runnable command) {
+    synchronized (commands) {
+      commands.add(command);
+    }
+    if (scheduled.compareAndSet(false, true)) {
+      owner.execute(batch);
+    }
+  }
+
+  /**
+   * Run the commands waiting, up to a batch of them, then the batch task. A command that throws is
+   * logged and the rest still run
+   */
+  private void runBatch() {
+    try {
+      Runnable command;
+      for (int i = 0; i < MAX_BATCH && (command = poll()) != null; i++) {
+        try {
+          command.run();
+        } catch (RuntimeException e) {
+          logger.error("Command failed", e);
+        }
+      }
+      afterBatch.run();
+    } finally {
+      scheduled.set(false);
+    }
+
+    //Carry on with any commands left over, or submitted after the queue was found empty but before
+    //the flag was cleared, which would not have started a batch of their own
+    if (!isEmpty() && scheduled.compareAndSet(false, true)) {
+      owner.execute(batch);
+    }
+  }
+
+  /**
+   * Take the next command waiting
+   *
+   * @return the command, or null if there is none
+   */
+  private Runnable poll() {
+    synchronized (commands) {
+      return commands.poll();
+    }
+  }
+
+  /**
+   * Check if no commands are waiting
+   *
+   * @return true if there are none
+   */
+  private boolean isEmpty() {
+    synchronized (commands) {
+      return commands.isEmpty();
+    }
+  }
+}
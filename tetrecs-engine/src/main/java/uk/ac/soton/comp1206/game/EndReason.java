@@ -0,0 +1,17 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * The reason a game ended
+ */
+public enum EndReason {
+
+  /**
+   * A piece timed out with no lives left
+   */
+  OUT_OF_LIVES,
+
+  /**
+   * Neither the current nor the following piece fits anywhere on the grid in any rotation
+   */
+  NO_MOVES
+}
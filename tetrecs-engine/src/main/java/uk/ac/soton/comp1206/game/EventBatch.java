@@ -0,0 +1,299 @@
+package uk.ac.soton.comp1206.game;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+import uk.ac.soton.comp1206.event.EndGameListener;
+import uk.ac.soton.comp1206.event.GameLoopListener;
+import uk.ac.soton.comp1206.event.GridChangedListener;
+import uk.ac.soton.comp1206.event.LineClearedListener;
+import uk.ac.soton.comp1206.event.NextPieceListener;
+import uk.ac.soton.comp1206.event.SoundListener;
+import uk.ac.soton.comp1206.event.StatsListener;
+
+/**
+ * An EventBatch holds the events of one batch of a game's commands until the publisher tells the
+ * listeners about them. Each event is written into arrays kept from one batch to the next, rather
+ * than captured in a lambda of its own, so once the arrays have grown to fit a batch, collecting
+ * and telling its events allocates nothing.
+ * <p>
+ * A batch is filled on the owner, then run by the publisher. When it has run it empties itself
+ * and goes back to the game as its spare, to be filled again while the next batch is being told.
+ */
+final class EventBatch implements Runnable {
+
+  /**
+   * A piece for a NextPieceListener: the listener and the piece
+   */
+  private static final int NEXT_PIECE = 0;
+
+  /**
+   * Blocks for a LineClearedListener: the listener and a row mask
+   */
+  private static final int LINE_CLEARED = 1;
+
+  /**
+   * A countdown for a GameLoopListener: the listener and its length
+   */
+  private static final int GAME_LOOP = 2;
+
+  /**
+   * The end for an EndGameListener: the listener and the reason
+   */
+  private static final int END_GAME = 3;
+
+  /**
+   * Stats for a StatsListener: the listener, score, level, lives and multiplier
+   */
+  private static final int STATS = 4;
+
+  /**
+   * A sound for a SoundListener: the listener and the name of the sound
+   */
+  private static final int SOUND = 5;
+
+  /**
+   * A block for a GridChangedListener: the listener, column, row and value
+   */
+  private static final int GRID_CHANGED = 6;
+
+  /**
+   * Events a batch has room for to begin with, besides one for each block of a row and column
+   */
+  private static final int EVENTS = 16;
+
+  /**
+   * The kind of each event followed by its numbers, in the order they happened
+   */
+  private int[] numbers;
+
+  /**
+   * Number of entries used in numbers
+   */
+  private int numberCount = 0;
+
+  /**
+   * The listener of each event followed by its piece, reason or sound, in the order they happened
+   */
+  private Object[] objects;
+
+  /**
+   * Number of entries used in objects
+   */
+  private int objectCount = 0;
+
+  /**
+   * The row masks of the line cleared events, one after another
+   */
+  private long[] masks;
+
+  /**
+   * Number of entries used in masks
+   */
+  private int maskCount = 0;
+
+  /**
+   * The mask handed to a line cleared listener, reused for every one
+   */
+  private final long[] mask;
+
+  /**
+   * Where the batch goes once it has been run, for the game to fill again
+   */
+  private final AtomicReference<EventBatch> spare;
+
+  /**
+   * Create a new EventBatch, with room for the events of a piece that clears a row and a column
+   * without growing
+   *
+   * @param cols  number of columns of the game's grid
+   * @param rows  number of rows of the game's grid
+   * @param spare where to put the batch once it has been run
+   */
+  EventBatch(int cols, int rows, AtomicReference<EventBatch> spare) {
+    //Every block of the piece and of the lines it clears changes, and a grid change has the most
+    //numbers and objects of any event
+    int events = EVENTS + 2 * (cols + rows);
+    this.numbers = new int[events * 4];
+    this.objects = new Object[events * 2];
+    this.mask = new long[rows];
+    this.masks = new long[rows * 2];
+    this.spare = spare;
+  }
+
+  /**
+   * Check if the batch has no events
+   *
+   * @return true if there are none
+   */
+  boolean isEmpty() {
+    return numberCount == 0;
+  }
+
+  /**
+   * Add a new piece for a listener
+   *
+   * @param listener the listener
+   * @param piece    the piece
+   */
+  void nextPiece(NextPieceListener listener, GamePiece piece) {
+    addNumber(NEXT_PIECE);
+    addObjects(listener, piece);
+  }
+
+  /**
+   * Add cleared blocks for a listener. The mask is copied, so can be reused straight away
+   *
+   * @param listener the listener
+   * @param blocks   the blocks cleared, one bitmask per row
+   */
+  void lineCleared(LineClearedListener listener, long[] blocks) {
+    addNumber(LINE_CLEARED);
+    addObjects(listener, null);
+    if (maskCount + mask.length > masks.length) {
+      masks = Arrays.copyOf(masks, masks.length * 2);
+    }
+    System.arraycopy(blocks, 0, masks, maskCount, mask.length);
+    maskCount += mask.length;
+  }
+
+  /**
+   * Add the start of a countdown for a listener
+   *
+   * @param listener the listener
+   * @param delay    length of the countdown in milliseconds
+   */
+  void gameLoop(GameLoopListener listener, int delay) {
+    addNumber(GAME_LOOP);
+    addNumber(delay);
+    addObjects(listener, null);
+  }
+
+  /**
+   * Add the end of the game for a listener
+   *
+   * @param listener the listener
+   * @param reason   why the game ended
+   */
+  void endGame(EndGameListener listener, EndReason reason) {
+    addNumber(END_GAME);
+    addObjects(listener, reason);
+  }
+
+  /**
+   * Add new stats for a listener
+   *
+   * @param listener   the listener
+   * @param score      the score
+   * @param level      the level
+   * @param lives      the lives left
+   * @param multiplier the multiplier
+   */
+  void statsChanged(StatsListener listener, int score, int level, int lives, int multiplier) {
+    addNumber(STATS);
+    addNumber(score);
+    addNumber(level);
+    addNumber(lives);
+    addNumber(multiplier);
+    addObjects(listener, null);
+  }
+
+  /**
+   * Add a sound for a listener
+   *
+   * @param listener the listener
+   * @param sound    name of the sound
+   */
+  void playSound(SoundListener listener, String sound) {
+    addNumber(SOUND);
+    addObjects(listener, sound);
+  }
+
+  /**
+   * Add a changed block for a listener
+   *
+   * @param listener the listener
+   * @param x        column of the block
+   * @param y        row of the block
+   * @param value    the new value of the block
+   */
+  void gridChanged(GridChangedListener listener, int x, int y, int value) {
+    addNumber(GRID_CHANGED);
+    addNumber(x);
+    addNumber(y);
+    addNumber(value);
+    addObjects(listener, null);
+  }
+
+  /**
+   * Tell every listener about its events in the order they happened, then empty the batch and
+   * hand it back to the game
+   */
+  @Override
+  public void run() {
+    try {
+      int n = 0;
+      int o = 0;
+      int m = 0;
+      while (n < numberCount) {
+        int kind = numbers[n++];
+        Object listener = objects[o++];
+        Object value = objects[o++];
+        switch (kind) {
+          case NEXT_PIECE -> ((NextPieceListener) listener).nextPiece((GamePiece) value);
+          case LINE_CLEARED -> {
+            System.arraycopy(masks, m, mask, 0, mask.length);
+            m += mask.length;
+            ((LineClearedListener) listener).lineCleared(mask);
+          }
+          case GAME_LOOP -> ((GameLoopListener) listener).gameLoop(numbers[n++]);
+          case END_GAME -> ((EndGameListener) listener).endGame((EndReason) value);
+          case STATS -> {
+            ((StatsListener) listener).statsChanged(numbers[n], numbers[n + 1], numbers[n + 2],
+                numbers[n + 3]);
+            n += 4;
+          }
+          case SOUND -> ((SoundListener) listener).playSound((String) value);
+          case GRID_CHANGED -> {
+            ((GridChangedListener) listener).gridChanged(numbers[n], numbers[n + 1],
+                numbers[n + 2]);
+            n += 3;
+          }
+          default -> throw new IllegalStateException("No such event: " + kind);
+        }
+      }
+    } finally {
+      //Let go of the listeners and values, then go back to the game even if a listener threw
+      Arrays.fill(objects, 0, objectCount, null);
+      numberCount = 0;
+      objectCount = 0;
+      maskCount = 0;
+      spare.set(this);
+    }
+  }
+
+  /**
+   * Add the kind of an event or one of its numbers
+   *
+   * @param value the kind or number
+   */
+  private void addNumber(int value) {
+    if (numberCount == numbers.length) {
+      numbers = Arrays.copyOf(numbers, numbers.length * 2);
+    }
+    numbers[numberCount++] = value;
+  }
+
+  /**
+   * Add the listener of an event and its value
+   *
+   * @param listener the listener
+   * @param value    the piece, reason or sound, or null if the event has none
+   */
+  private void addObjects(Object listener, Object value) {
+    if (objectCount + 2 > objects.length) {
+      objects = Arrays.copyOf(objects, objects.length * 2);
+    }
+    objects[objectCount++] = listener;
+    objects[objectCount++] = value;
+  }
+}
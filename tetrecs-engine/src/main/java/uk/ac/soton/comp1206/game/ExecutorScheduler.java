@@ -0,0 +1,65 @@
+package uk.ac.soton.comp1206.game;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A GameScheduler backed by a ScheduledThreadPoolExecutor with a fixed number of daemon threads.
+ * Cancelled tasks are taken out of its queue straight away, so games that keep rescheduling their
+ * countdown do not leave a trail of dead tasks behind them.
+ */
+public class ExecutorScheduler implements GameScheduler {
+
+  /**
+   * The scheduler shared by every game, with a thread per core up to four
+   */
+  static final ExecutorScheduler SHARED =
+      new ExecutorScheduler(Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+  /**
+   * Numbers the threads of every scheduler
+   */
+  private static final AtomicInteger threadNumber = new AtomicInteger();
+
+  /**
+   * The executor the tasks run on
+   */
+  private final ScheduledThreadPoolExecutor executor;
+
+  /**
+   * Create a new ExecutorScheduler
+   *
+   * @param threads number of threads to run the tasks on
+   */
+  public ExecutorScheduler(int threads) {
+    executor = new ScheduledThreadPoolExecutor(threads, task -> {
+      Thread thread = new Thread(task, "Game timer " + threadNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    executor.setRemoveOnCancelPolicy(true);
+  }
+
+  /**
+   * Run a task once after a delay
+   *
+   * @param task  the task to run
+   * @param delay how long to wait
+   * @param unit  the unit of the delay
+   * @return the scheduled run, to cancel it
+   */
+  @Override
+  public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+    ScheduledFuture<?> future = executor.schedule(task, delay, unit);
+    return () -> future.cancel(false);
+  }
+
+  /**
+   * Stop the threads of this scheduler. Tasks not yet run are dropped
+   */
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+}
@@ -0,0 +1,1152 @@
+package uk.ac.soton.comp1206.game;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.event.EndGameListener;
+import uk.ac.soton.comp1206.event.GameLoopListener;
+import uk.ac.soton.comp1206.event.GridChangedListener;
+import uk.ac.soton.comp1206.event.LineClearedListener;
+import uk.ac.soton.comp1206.event.NextPieceListener;
+import uk.ac.soton.comp1206.event.SoundListener;
+import uk.ac.soton.comp1206.event.StatsListener;
+
+/**
+ * The Game class handles the main logic, state and properties of the TetrECS game. Methods to
+ * manipulate the game state and to handle actions made by the player should take place inside this
+ * class.
+ * <p>
+ * The Game does not depend on JavaFX. Anything it wants shown or played is passed out through its
+ * listeners, all of which are optional, so the game can also be run without a UI.
+ * <p>
+ * A Game is not thread safe. A single thread can drive it by calling its methods, as the
+ * simulator does. Otherwise every change, including the countdown running out, is submitted as a
+ * command and run on the game's owner thread, and with a publisher set the events of each batch of
+ * commands are handed to the publisher together, so a UI sees every change of a batch in one go on
+ * its own thread.
+ */
+public class Game {
+
+  private static final Logger logger = LogManager.getLogger(Game.class);
+  /**
+   * Number of rows
+   */
+  protected final int rows;
+  /**
+   * Number of columns
+   */
+  protected final int cols;
+  /**
+   * The grid model linked to the game
+   */
+  protected final Grid grid;
+  /**
+   * The blocks to be cleared, one bitmask per row where bit x is set if the block at x is cleared.
+   * Reused for every placement
+   */
+  private final long[] clearMask;
+  /**
+   * The score of the game
+   */
+  private int score = 0;
+  /**
+   * The level of the game
+   */
+  private int level = 0;
+  /**
+   * The lives left in the game
+   */
+  private int lives = 3;
+  /**
+   * The multiplier of the game
+   */
+  private int multiplier = 1;
+  /**
+   * Initialising the nextPieceListener
+   */
+  private NextPieceListener nextPieceListener;
+  /**
+   * Initialising the followingPieceListener
+   */
+  private NextPieceListener followingPieceListener;
+  /**
+   * Initialising the lineClearedListener
+   */
+  private LineClearedListener lineClearedListener;
+  /**
+   * Initialising the gameLoopListener
+   */
+  private GameLoopListener gameLoopListener;
+  /**
+   * Initialising the endGameListener
+   */
+  private EndGameListener endGameListener;
+  /**
+   * Initialising the statsListener
+   */
+  private StatsListener statsListener;
+  /**
+   * Initialising the soundListener
+   */
+  private SoundListener soundListener;
+  /**
+   * Initialising the gridChangedListener
+   */
+  private GridChangedListener gridChangedListener;
+  /**
+   * The GamePiece that holds the current piece that will be placed
+   */
+  private GamePiece currentPiece;
+  /**
+   * The GamePiece that holds the second piece to be played
+   */
+  private GamePiece followingPiece;
+  /**
+   * The generator of the sequence of pieces
+   */
+  private final PieceGenerator pieces;
+  /**
+   * Runs the commands submitted to the game
+   */
+  private CommandQueue commands =
+      new CommandQueue(CommandQueue.SHARED_OWNER, this::publishEvents);
+  /**
+   * Runs each batch of events, or null to tell the listeners straight away
+   */
+  private Executor publisher;
+  /**
+   * The events of the batch of commands being run, waiting to be published. Only used on the owner
+   */
+  private EventBatch events;
+  /**
+   * A batch of events the publisher has finished with, to be filled after the current one
+   */
+  private final AtomicReference<EventBatch> spareEvents = new AtomicReference<>();
+  /**
+   * Runs the countdown of the game
+   */
+  private GameScheduler scheduler = GameScheduler.shared();
+  /**
+   * Where the countdown gets the time from
+   */
+  private GameClock clock = GameClock.system();
+  /**
+   * The countdown for the game loop, or null if none is running
+   */
+  private GameScheduler.Timeout countDown;
+  /**
+   * When the running countdown is due to end, by the clock. It can be before the deadline, which
+   * moves on after every piece without the countdown being scheduled again
+   */
+  private long countdownDue;
+  /**
+   * The number of countdowns scheduled, so the end of one that has been replaced can be told apart
+   */
+  private int countdowns = 0;
+  /**
+   * When the current piece times out, by the clock
+   */
+  private volatile long deadline;
+  /**
+   * The length of the current countdown in nanoseconds
+   */
+  private volatile long countdownNanos;
+  /**
+   * The time that was left on the countdown when the game was paused, or -1 if it is not paused
+   */
+  private volatile long pausedRemaining = -1;
+  /**
+   * Whether the game runs its own countdown
+   */
+  private boolean timed = true;
+  /**
+   * Whether the game has ended
+   */
+  private boolean over = false;
+
+  /**
+   * Why the game ended, or null while it is still going
+   */
+  private EndReason endReason;
+  /**
+   * The Zobrist hash of the current and following piece
+   */
+  private long pieceHash;
+  /**
+   * The latest snapshot of the game state, replaced after every change
+   */
+  private volatile GameSnapshot snapshot;
+  /**
+   * The x-axis location of the focused block. Initialised to the centre of the board
+   */
+  private int aimX;
+
+  /**
+   * The y-axis location of the focused block. Initialised to the centre of the board
+   */
+  private int aimY;
+
+  /**
+   * Create a new game with the specified rows and columns. Creates a corresponding grid model.
+   *
+   * @param cols number of columns, up to Grid.MAX_COLS
+   * @param rows number of rows
+   */
+  public Game(int cols, int rows) {
+    this(cols, rows, new PieceGenerator());
+  }
+
+  /**
+   * Create a new game with the specified rows and columns whose pieces follow the given seed, so
+   * the same seed always gives the same game
+   *
+   * @param cols number of columns, up to Grid.MAX_COLS
+   * @param rows number of rows
+   * @param seed seed of the sequence of pieces
+   */
+  public Game(int cols, int rows, long seed) {
+    this(cols, rows, new PieceGenerator(seed));
+  }
+
+  /**
+   * Create a new game with the specified rows and columns whose pieces come from the given
+   * generator
+   *
+   * @param cols   number of columns, up to Grid.MAX_COLS
+   * @param rows   number of rows
+   * @param pieces generator of the sequence of pieces, used only by this game
+   */
+  public Game(int cols, int rows, PieceGenerator pieces) {
+    this.cols = cols;
+    this.rows = rows;
+    this.pieces = pieces;
+
+    //Create a new grid model to represent the game state
+    this.grid = new Grid(cols, rows);
+    this.clearMask = new long[rows];
+    this.events = new EventBatch(cols, rows, spareEvents);
+
+    //Start aiming at the centre of the board
+    aimX = cols / 2;
+    aimY = rows / 2;
+  }
+
+  /**
+   * Create a new game in the state of a snapshot, to analyse a position away from the game it came
+   * from. Only whether each block is filled is known, so every filled block gets the value 1. The
+   * game is not timed, and the pieces after the following piece are random
+   *
+   * @param snapshot the state to start from
+   */
+  public Game(GameSnapshot snapshot) {
+    this(snapshot.getCols(), snapshot.getRows(), new PieceGenerator());
+    timed = false;
+
+    //Fill the blocks of the snapshot
+    for (int y = 0; y < rows; y++) {
+      for (long row = snapshot.getRowBits(y); row != 0; row &= row - 1) {
+        grid.set(Long.numberOfTrailingZeros(row), y, 1);
+      }
+    }
+
+    score = snapshot.getScore();
+    level = snapshot.getLevel();
+    lives = snapshot.getLives();
+    multiplier = snapshot.getMultiplier();
+    setPieces(snapshot.getCurrentPiece(), snapshot.getFollowingPiece());
+    aimX = snapshot.getAimX();
+    aimY = snapshot.getAimY();
+    publishSnapshot();
+  }
+
+  /**
+   * Start the game
+   */
+  public void start() {
+    logger.info("Starting game");
+    initialiseGame();
+  }
+
+  /**
+   * Stop the game
+   */
+  public void stop() {
+    logger.info("Stopping the game");
+
+    //Setting all listeners to null
+    nextPieceListener = null;
+    followingPieceListener = null;
+    lineClearedListener = null;
+    gameLoopListener = null;
+    statsListener = null;
+    soundListener = null;
+
+    //Stopping the timer, and any end of it already submitted
+    if (countDown != null) {
+      countDown.cancel();
+      countDown = null;
+    }
+    countdowns++;
+    deadline = clock.nanoTime();
+    pausedRemaining = -1;
+  }
+
+  /**
+   * Initialise a new game and set up anything that needs to be done at the start
+   */
+  public void initialiseGame() {
+    logger.info("Initialising game");
+
+    //Populate the GamePieces
+    setPieces(spawnPiece(), spawnPiece());
+
+    //Update UI with upcoming pieces and the starting stats
+    updatePieces();
+    updateStats();
+
+    logger.info("The current piece is " + currentPiece);
+    logger.info("The following piece is " + followingPiece);
+
+    //Share the starting state
+    publishSnapshot();
+
+    //Starting the timer
+    resetTimer(getTimerDelay());
+
+    //End the game straight away if nothing can be played
+    checkMoves();
+  }
+
+  /**
+   * Place the block of the conditions are met
+   *
+   * @param x x position of the block
+   * @param y y position of the block
+   */
+  public void placeBlock(int x, int y) {
+    //Keep hold of the piece being played as nextPiece will replace it
+    var piece = currentPiece;
+
+    //Try play the current piece at location of the focused block
+    if (grid.playPiece(piece, x, y)) {
+      logger.info("Played {} at {}, {}", piece, x, y);
+      //Replace the current piece with the following
+      nextPiece();
+      //What happens after piece is played
+      afterPiece(piece, x, y);
+      //Share the new state
+      publishSnapshot();
+      //Play place sound
+      playSound("place.wav");
+
+      //End the game straight away if nothing can be played
+      checkMoves();
+    } else
+    //Play fail sound
+    {
+      logger.info("Cannot play {} at {}, {}", piece, x, y);
+      playSound("fail.wav");
+    }
+  }
+
+  /**
+   * Clear any full vertical/horizontal lines that have been made AND reset the timer. Only the
+   * lines the piece was played on can have been filled, so only those are checked
+   *
+   * @param piece the piece that was played
+   * @param x     x position the piece was played at
+   * @param y     y position the piece was played at
+   */
+  public void afterPiece(GamePiece piece, int x, int y) {
+    //Find the full lines and the blocks in them, a block on both a full row and column is only
+    //counted once
+    int clearLines = grid.findFullLines(piece, x, y, clearMask);
+    int clearBlocks = Grid.countBlocks(clearMask);
+
+    //Calculate the score based on the number of blocks and lines cleared
+    calcScore(clearBlocks, clearLines);
+
+    if (clearLines > 0) {
+      //Update the UI to clear blocks in message. The batch keeps its own copy of the mask
+      if (lineClearedListener != null) {
+        if (publisher == null) {
+          lineClearedListener.lineCleared(clearMask);
+        } else {
+          events.lineCleared(lineClearedListener, clearMask);
+        }
+      }
+
+      //Update each block to be empty
+      grid.clear(clearMask);
+
+      //Play line cleared music
+      playSound("clear.wav");
+    }
+
+    //Checked first, as passing the counts boxes them even when the lines are not written
+    if (logger.isInfoEnabled()) {
+      logger.info("Number of lines cleared: {}", clearLines);
+      logger.info("Number of blocks cleared: {}", clearBlocks);
+    }
+
+    //Reset the timer
+    resetTimer(getTimerDelay());
+    logger.info("Timer reset");
+  }
+
+  /**
+   * Calculate the total score of the game. Updates when a line is cleared
+   */
+  private void calcScore(int blockNumber, int lineNumber) {
+    //Calculate the score
+    score = lineScore(lineNumber, blockNumber, multiplier) + score;
+
+    //Implement the level
+    level = score / 1000;
+
+    //Implement the multiplier
+    multiplier = multiplier + 1;
+    if (lineNumber == 0) {
+      multiplier = 1;
+    }
+
+    //Checked first, as passing the stats boxes them even when the lines are not written
+    if (logger.isInfoEnabled()) {
+      logger.info("The score is: {}", score);
+      logger.info("The level is: {}", level);
+      logger.info("The multiplier is {}", multiplier);
+    }
+
+    //Update UI with the new stats
+    updateStats();
+  }
+
+  /**
+   * Work out the score for clearing lines
+   *
+   * @param lineNumber  number of lines cleared
+   * @param blockNumber number of blocks cleared
+   * @param multiplier  the multiplier
+   * @return the score to add
+   */
+  public static int lineScore(int lineNumber, int blockNumber, int multiplier) {
+    //Number of lines cleared * number of blocks cleared * 10 * multiplier
+    return lineNumber * blockNumber * 10 * multiplier;
+  }
+
+  /**
+   * Figure out how long the timer has before the block is changed and a life is lost
+   */
+  private int getTimerDelay() {
+    //Time the user has to place a block
+    //12000 - level * 500
+    int delay = 12000 - (level * 500);
+
+    //Set minimum value for the delay
+    //At level 20 time does not get any faster
+    if (delay < 2500)
+      delay = 2500;
+
+    return delay;
+  }
+
+  /**
+   * Handle duration of the game. Handle the time running out and losing lives
+   * <p>
+   * Called by the countdown when it runs out. Headless drivers that turn the countdown off call it
+   * themselves when the player gives up on the current piece
+   */
+  public void gameLoop() {
+    //When you still have lives and the game is not over
+    if (lives > 0) {
+      //Reduce the number of lives
+      lives = lives - 1;
+      logger.info("Lives left are " + lives);
+
+      //Replace the current piece and get a new following piece
+      nextPiece();
+
+      //Reset the timer
+      resetTimer(getTimerDelay());
+      logger.info("Timer started with " + getTimerDelay() + " milliseconds");
+
+      //Set the multipler back to 1 because no block placed
+      multiplier = 1;
+      updateStats();
+
+      //Share the new state
+      publishSnapshot();
+
+      //End the game straight away if nothing can be played
+      checkMoves();
+    } else {
+      logger.info("Game has ended, no more lives");
+      //Stop the game because all lives are lost
+      endGame(EndReason.OUT_OF_LIVES);
+    }
+  }
+
+  /**
+   * End the game if neither the current nor the following piece can be played anywhere, instead of
+   * waiting for every life to time out
+   */
+  private void checkMoves() {
+    if (over || grid.hasPlacement(currentPiece)
+        || followingPiece != null && grid.hasPlacement(followingPiece)) {
+      return;
+    }
+    logger.info("Game has ended, no piece can be played");
+    endGame(EndReason.NO_MOVES);
+  }
+
+  /**
+   * Stop the game and tell the listener it has ended
+   *
+   * @param reason why the game ended
+   */
+  private void endGame(EndReason reason) {
+    over = true;
+    endReason = reason;
+    stop();
+
+    //Update the listener to tell the UI the game is over
+    if (endGameListener != null) {
+      if (publisher == null) {
+        endGameListener.endGame(reason);
+      } else {
+        events.endGame(endGameListener, reason);
+      }
+    }
+  }
+
+  /**
+   * reset the timer of the game
+   *
+   * @param delay amount of time the timer lasts
+   */
+  private void resetTimer(int delay) {
+    //Prime timer
+    long nanos = TimeUnit.MILLISECONDS.toNanos(delay);
+    countdownNanos = nanos;
+    if (pausedRemaining >= 0) {
+      //Start again from the top when resumed
+      pausedRemaining = nanos;
+    } else {
+      startCountdown(nanos);
+    }
+
+    //Update the UI to tell the visual timer to start again with the message
+    if (gameLoopListener != null) {
+      if (publisher == null) {
+        gameLoopListener.gameLoop(delay);
+      } else {
+        events.gameLoop(gameLoopListener, delay);
+      }
+    }
+    logger.info("Timer started");
+  }
+
+  /**
+   * Set the deadline a time from now and make sure a countdown will end by then. A countdown
+   * already running that ends no later is kept, and when it ends it finds the deadline has moved
+   * and is scheduled again for the time left. So playing a piece does not schedule anything, and
+   * allocates nothing, unless the countdown got shorter
+   *
+   * @param nanos time until the deadline
+   */
+  private void startCountdown(long nanos) {
+    deadline = clock.nanoTime() + nanos;
+
+    //Start timer on the shared scheduler, unless something else is driving the game
+    if (!timed || countDown != null && countdownDue <= deadline) {
+      return;
+    }
+    if (countDown != null) {
+      countDown.cancel();
+    }
+    scheduleExpiry(nanos);
+  }
+
+  /**
+   * Schedule the end of the countdown, replacing any scheduled before. The piece is timed out by a
+   * command like any other change
+   *
+   * @param nanos time until the end
+   */
+  private void scheduleExpiry(long nanos) {
+    int countdown = ++countdowns;
+    countdownDue = clock.nanoTime() + nanos;
+    countDown = scheduler.schedule(() -> commands.submit(() -> expire(countdown)), nanos,
+        TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Run on the owner when a countdown ends. A countdown that was replaced just as it ended does
+   * nothing. One that ends before the deadline by the game's clock, because the deadline has moved
+   * on since it was scheduled or because a scheduler may run a task early, is scheduled again for
+   * the time left
+   *
+   * @param countdown number of the countdown
+   */
+  private void expire(int countdown) {
+    if (countdown != countdowns) {
+      return;
+    }
+    countDown = null;
+    if (over || pausedRemaining >= 0) {
+      return;
+    }
+    long left = deadline - clock.nanoTime();
+    if (left > 0) {
+      scheduleExpiry(left);
+      return;
+    }
+    gameLoop();
+  }
+
+  /**
+   * Pause the countdown, keeping the time left until the game is resumed
+   */
+  public void pause() {
+    if (pausedRemaining >= 0 || over) {
+      return;
+    }
+    pausedRemaining = Math.max(0, deadline - clock.nanoTime());
+    if (countDown != null) {
+      countDown.cancel();
+      countDown = null;
+    }
+    logger.info("Game paused");
+  }
+
+  /**
+   * Resume the countdown from where it was paused
+   */
+  public void resume() {
+    long remaining = pausedRemaining;
+    if (remaining < 0 || over) {
+      return;
+    }
+    pausedRemaining = -1;
+    startCountdown(remaining);
+    logger.info("Game resumed");
+  }
+
+  /**
+   * Check if the countdown is paused
+   *
+   * @return true if paused
+   */
+  public boolean isPaused() {
+    return pausedRemaining >= 0;
+  }
+
+  /**
+   * Get the time left before the current piece times out. Safe to call from any thread, for
+   * example to draw the countdown every frame
+   *
+   * @return time left in milliseconds
+   */
+  public double getRemainingTime() {
+    long remaining = pausedRemaining;
+    if (remaining < 0) {
+      remaining = Math.max(0, deadline - clock.nanoTime());
+    }
+    return remaining / 1e6;
+  }
+
+  /**
+   * Get the length of the current countdown
+   *
+   * @return length in milliseconds
+   */
+  public double getCountdownTime() {
+    return countdownNanos / 1e6;
+  }
+
+  /**
+   * Replace the published snapshot with a copy of the current state. The copy shares the rows of
+   * the snapshot it replaces unless the grid has changed
+   */
+  private void publishSnapshot() {
+    snapshot = new GameSnapshot(grid, score, level, lives, multiplier, currentPiece,
+        followingPiece, aimX, aimY, stateHash(), snapshot);
+  }
+
+  /**
+   * Run a change to the game on its owner thread, after any changes submitted before it. Safe to
+   * call from any thread
+   *
+   * @param command the change, calling the methods of this game
+   */
+  public void submit(Runnable command) {
+    commands.submit(command);
+  }
+
+  /**
+   * Set the executor the submitted commands and the countdown run on, instead of the thread shared
+   * by every game. Must be set before the game starts
+   *
+   * @param owner runs the commands, one batch at a time
+   */
+  public void setOwner(Executor owner) {
+    commands = new CommandQueue(owner, this::publishEvents);
+  }
+
+  /**
+   * Set the executor the listeners are told on. The events of each batch of commands are collected
+   * and handed to it together once the batch has run, for example Platform::runLater to update a
+   * UI once for every batch. Without one the listeners are told straight away, on whichever thread
+   * changed the game. Must be set before the game starts, and from then on every change must be
+   * submitted
+   *
+   * @param publisher runs the events of each batch, or null to tell the listeners straight away
+   */
+  public void setPublisher(Executor publisher) {
+    this.publisher = publisher;
+  }
+
+  /**
+   * Hand the events of the batch that has just run to the publisher together, and carry on with
+   * the spare batch. Only while the publisher is still telling an earlier batch is a new one made
+   */
+  private void publishEvents() {
+    if (events.isEmpty()) {
+      return;
+    }
+    var batch = events;
+    events = spareEvents.getAndSet(null);
+    if (events == null) {
+      events = new EventBatch(cols, rows, spareEvents);
+    }
+    publisher.execute(batch);
+  }
+
+  /**
+   * Get the latest snapshot of the game state. Safe to call from any thread, the snapshot is
+   * immutable and replaced as a whole after each move, rotation, swap, change of aim or lost life
+   *
+   * @return the latest snapshot, or null if the game has not been initialised
+   */
+  public GameSnapshot getSnapshot() {
+    return snapshot;
+  }
+
+  /**
+   * Set the listener to handle an event when nextPiece is set
+   *
+   * @param listener listener to nextPiece object
+   */
+  public void setNextListener(NextPieceListener listener) {
+    this.nextPieceListener = listener;
+  }
+
+  /**
+   * Set the listener to handle an event when followingPiece is set
+   *
+   * @param listener listener to followingPiece object
+   */
+  public void setFollowingPieceListener(NextPieceListener listener) {
+    this.followingPieceListener = listener;
+  }
+
+  /**
+   * Set the listener to handle an event when line is cleared
+   *
+   * @param listener listener to lineCleared object
+   */
+  public void setLineClearedListener(LineClearedListener listener) {
+    this.lineClearedListener = listener;
+  }
+
+  /**
+   * Set the listener to handle an event when game loops
+   *
+   * @param listener listener to gameLoop object
+   */
+  public void setGameLoopListener(GameLoopListener listener) {
+    this.gameLoopListener = listener;
+  }
+
+  /**
+   * Set the listener to handle an event when the game ends
+   *
+   * @param listener listener to gameEnd object
+   */
+  public void setEndGameListener(EndGameListener listener) {
+    this.endGameListener = listener;
+  }
+
+  /**
+   * Set whether the game runs its own countdown. Headless drivers such as the simulator turn it off
+   * before starting the game and call gameLoop themselves to expire a piece
+   *
+   * @param timed true to run the countdown
+   */
+  public void setTimed(boolean timed) {
+    this.timed = timed;
+  }
+
+  /**
+   * Set the scheduler the countdown runs on, instead of the one shared by every game. Must be set
+   * before the game starts
+   *
+   * @param scheduler the scheduler
+   */
+  public void setScheduler(GameScheduler scheduler) {
+    this.scheduler = scheduler;
+  }
+
+  /**
+   * Set the listener to handle an event when the value of a block of the grid changes. The changes
+   * are published like every other event, where listening to the grid itself would be told on the
+   * owner thread
+   *
+   * @param listener listener to grid changed object, or null to stop listening
+   */
+  public void setGridChangedListener(GridChangedListener listener) {
+    this.gridChangedListener = listener;
+    grid.setGridChangedListener(listener == null ? null : this::gridChanged);
+  }
+
+  /**
+   * Tell the listener a block of the grid has changed, straight away or in the batch being run
+   *
+   * @param x     column of the block
+   * @param y     row of the block
+   * @param value the new value of the block
+   */
+  private void gridChanged(int x, int y, int value) {
+    if (publisher == null) {
+      gridChangedListener.gridChanged(x, y, value);
+    } else {
+      events.gridChanged(gridChangedListener, x, y, value);
+    }
+  }
+
+  /**
+   * Set the clock the countdown is timed by, instead of the system clock. Must be set before the
+   * game starts. A headless run can give a VirtualClock as both the clock and the scheduler, with
+   * an owner that runs commands straight away, to time out pieces without waiting
+   *
+   * @param clock the clock
+   */
+  public void setClock(GameClock clock) {
+    this.clock = clock;
+  }
+
+  /**
+   * Check if the game has ended
+   *
+   * @return true if the game is over
+   */
+  public boolean isOver() {
+    return over;
+  }
+
+  /**
+   * Get why the game ended
+   *
+   * @return the reason, or null if the game is not over
+   */
+  public EndReason getEndReason() {
+    return endReason;
+  }
+
+  /**
+   * Set the listener to handle an event when the score, level, lives or multiplier change
+   *
+   * @param listener listener to stats object
+   */
+  public void setStatsListener(StatsListener listener) {
+    this.statsListener = listener;
+  }
+
+  /**
+   * Set the listener to handle an event when the game wants a sound played
+   *
+   * @param listener listener to sound object
+   */
+  public void setSoundListener(SoundListener listener) {
+    this.soundListener = listener;
+  }
+
+  /**
+   * Update the listeners with the current and following piece
+   */
+  private void updatePieces() {
+    if (nextPieceListener != null) {
+      publishPiece(nextPieceListener, currentPiece);
+    }
+    if (followingPieceListener != null) {
+      publishPiece(followingPieceListener, followingPiece);
+    }
+  }
+
+  /**
+   * Tell a listener about a piece, straight away or in the batch being run
+   *
+   * @param listener the listener
+   * @param piece    the piece
+   */
+  private void publishPiece(NextPieceListener listener, GamePiece piece) {
+    if (publisher == null) {
+      listener.nextPiece(piece);
+    } else {
+      events.nextPiece(listener, piece);
+    }
+  }
+
+  /**
+   * Update the listener with the score, level, lives and multiplier
+   */
+  private void updateStats() {
+    if (statsListener != null) {
+      if (publisher == null) {
+        statsListener.statsChanged(score, level, lives, multiplier);
+      } else {
+        events.statsChanged(statsListener, score, level, lives, multiplier);
+      }
+    }
+  }
+
+  /**
+   * Ask the listener to play a sound
+   *
+   * @param sound name of sound
+   */
+  private void playSound(String sound) {
+    if (soundListener != null) {
+      if (publisher == null) {
+        soundListener.playSound(sound);
+      } else {
+        events.playSound(soundListener, sound);
+      }
+    }
+  }
+
+  /**
+   * Change the focused block with the keys so long as they are within range
+   * @param x change x-axis of focused block
+   * @param y change y-axis of focused block
+   */
+  public void currentAim(int x, int y) {
+    int oldX = aimX;
+    int oldY = aimY;
+    aimX += x;
+    aimY += y;
+
+    //Focused block cannot surpass GameBoard size to the right
+    if (aimX > grid.getCols() - 1) {
+      aimX = grid.getCols() - 1;
+    }
+
+    //Focused block cannot surpass GameBoard size to the left
+    if (aimX < 0) {
+      aimX = 0;
+    }
+
+    //Focused block cannot surpass GameBoard size to the top
+    if (aimY > grid.getRows() - 1) {
+      aimY = grid.getRows() - 1;
+    }
+
+    //Focused block cannot surpass GameBoard size to the bottom
+    if (aimY < 0) {
+      aimY = 0;
+    }
+
+    //Share the new aim, unless it was held at the edge
+    if (aimX != oldX || aimY != oldY) {
+      publishSnapshot();
+    }
+  }
+
+  /**
+   * Get the aim on the x-axis
+   * @return aim on the x-axis
+   */
+  public int getAimX() {
+    return aimX;
+  }
+
+  /**
+   * Set the aim on the x-axis
+   * @param x1 input to change by
+   */
+  public void setAimX(int x1) {
+    if (aimX != x1) {
+      aimX = x1;
+      publishSnapshot();
+    }
+  }
+
+  /**
+   * Get the aim on the y-axis
+   * @return aim on the y-axis
+   */
+  public int getAimY() {
+    return aimY;
+  }
+
+  /**
+   * Set the aim on the y-axis
+   * @param y1 input to change by
+   */
+  public void setAimY(int y1) {
+    if (aimY != y1) {
+      aimY = y1;
+      publishSnapshot();
+    }
+  }
+
+  /**
+   * Spawn the next piece in the sequence of this game
+   *
+   * @return the new piece
+   */
+  public GamePiece spawnPiece() {
+    return pieces.next();
+  }
+
+  /**
+   * Replace the current piece with a new piece
+   */
+  public void nextPiece() {
+    //Move the following to the current and make new following piece
+    setPieces(followingPiece, spawnPiece());
+
+    //Update UI with upcoming pieces
+    updatePieces();
+
+    logger.info("The next piece is {}", currentPiece);
+  }
+
+  /**
+   * Change the current and following piece, keeping the hash of the pieces up to date
+   *
+   * @param current   the new current piece
+   * @param following the new following piece
+   */
+  private void setPieces(GamePiece current, GamePiece following) {
+    //Take the keys of the old pieces out of the hash and put the new ones in
+    pieceHash ^= Zobrist.currentKey(currentPiece) ^ Zobrist.followingKey(followingPiece);
+    pieceHash ^= Zobrist.currentKey(current) ^ Zobrist.followingKey(following);
+
+    currentPiece = current;
+    followingPiece = following;
+  }
+
+  /**
+   * Rotate the current piece a certain number of time
+   *
+   * @param num the number of rotations
+   */
+  public void rotateCurrentPiece(int num) {
+    logger.info("Piece rotated");
+    setPieces(currentPiece.rotate(num), followingPiece);
+    publishSnapshot();
+    if (nextPieceListener != null) {
+      publishPiece(nextPieceListener, currentPiece);
+    }
+    playSound("rotate.wav");
+  }
+
+  /**
+   * Swap the current and following piece
+   */
+  public void swapCurrentPiece() {
+    setPieces(followingPiece, currentPiece);
+    publishSnapshot();
+
+    updatePieces();
+    playSound("transition.wav");
+
+    //End the game straight away if nothing can be played
+    checkMoves();
+  }
+
+  /**
+   * Getter method for Score Property
+   *
+   * @return Integer
+   */
+  public Integer getScoreProperty() {
+    return score;
+  }
+
+  /**
+   * Get the score
+   *
+   * @return score
+   */
+  public int getScore() {
+    return score;
+  }
+
+  /**
+   * Get the level
+   *
+   * @return level
+   */
+  public int getLevel() {
+    return level;
+  }
+
+  /**
+   * Get the lives left
+   *
+   * @return lives
+   */
+  public int getLives() {
+    return lives;
+  }
+
+  /**
+   * Get the multiplier
+   *
+   * @return multiplier
+   */
+  public int getMultiplier() {
+    return multiplier;
+  }
+
+  /**
+   * Get the piece that will be placed next
+   *
+   * @return current piece
+   */
+  public GamePiece getCurrentPiece() {
+    return currentPiece;
+  }
+
+  /**
+   * Get the piece after the current piece
+   *
+   * @return following piece
+   */
+  public GamePiece getFollowingPiece() {
+    return followingPiece;
+  }
+
+  /**
+   * Get a 64-bit hash of the filled blocks of the grid and the current and following piece. Kept up
+   * to date as the game changes, so it costs nothing to call
+   *
+   * @return the hash of the state
+   */
+  public long stateHash() {
+    return grid.getHash() ^ pieceHash;
+  }
+
+  /**
+   * Get the grid model inside this game representing the game state of the board
+   *
+   * @return game grid model
+   */
+  public Grid getGrid() {
+    return grid;
+  }
+}
@@ -0,0 +1,26 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * A GameClock is where a game gets the time from, to work out when its countdown runs out and how
+ * long is left of it. Games use the system clock unless given another, such as a VirtualClock that
+ * lets a headless run skip straight to the next deadline instead of waiting for it.
+ */
+public interface GameClock {
+
+  /**
+   * Get the current time. Only the difference between two times means anything, as with
+   * System.nanoTime
+   *
+   * @return the time in nanoseconds
+   */
+  long nanoTime();
+
+  /**
+   * Get the system clock, used by every game not given another
+   *
+   * @return the system clock
+   */
+  static GameClock system() {
+    return System::nanoTime;
+  }
+}
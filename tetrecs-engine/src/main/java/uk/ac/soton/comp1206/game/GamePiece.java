@@ -0,0 +1,406 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * Instances of GamePiece Represents the model of a specific Game Piece with it's block makeup.
+ * <p>
+ * The GamePiece class also contains a factory for producing a GamePiece of a particular shape, as
+ * specified by it's number.
+ * <p>
+ * GamePieces are immutable. Every shape in each of its four rotations is built once when the class
+ * is loaded, so the factory and rotate only hand out those shared instances and never allocate.
+ * Alongside the 3x3 block makeup each instance keeps a bitmask of the blocks in each of its rows,
+ * which the Grid checks against its occupancy bits.
+ */
+public class GamePiece {
+
+  /**
+   * The number of different pieces
+   */
+  public static final int PIECES = 18;
+
+  /**
+   * The number of different rotations of a piece
+   */
+  public static final int ROTATIONS = 4;
+
+  /**
+   * Every piece in every rotation, indexed by piece number then rotation
+   */
+  private static final GamePiece[][] catalogue = new GamePiece[PIECES][ROTATIONS];
+
+  static {
+    //Build each shape and then each of its rotations from the one before
+    for (int piece = 0; piece < PIECES; piece++) {
+      catalogue[piece][0] = createShape(piece);
+      for (int rotation = 1; rotation < ROTATIONS; rotation++) {
+        catalogue[piece][rotation] = catalogue[piece][rotation - 1].rotated();
+      }
+    }
+  }
+
+  /**
+   * The value of this piece
+   */
+  private final int value;
+  /**
+   * The name of this piece
+   */
+  private final String name;
+  /**
+   * The number of times this piece has been rotated from its original shape
+   */
+  private final int rotation;
+  /**
+   * The 2D grid representation of the shape of this piece
+   */
+  private final int[][] blocks;
+  /**
+   * The blocks in each row of the piece as a bitmask, where bit x is set if column x has a block
+   */
+  private final long[] rowMasks = new long[3];
+  /**
+   * The first column of the piece with a block
+   */
+  private final int minX;
+  /**
+   * The last column of the piece with a block
+   */
+  private final int maxX;
+  /**
+   * The first row of the piece with a block
+   */
+  private final int minY;
+  /**
+   * The last row of the piece with a block
+   */
+  private final int maxY;
+
+  /**
+   * Create a new GamePiece with the given name, block makeup, value and rotation. Should not be
+   * called directly, only via the factory.
+   *
+   * @param name     name of the piece
+   * @param blocks   block makeup of the piece
+   * @param value    the value of this piece
+   * @param rotation the number of times the piece has been rotated
+   */
+  private GamePiece(String name, int[][] blocks, int value, int rotation) {
+    this.name = name;
+    this.blocks = blocks;
+    this.value = value;
+    this.rotation = rotation;
+
+    //Bounds of the shape, narrowed as blocks are found
+    int minX = 2;
+    int maxX = 0;
+    int minY = 2;
+    int maxY = 0;
+
+    //Use the shape of the block to create a grid with either 0 (empty) or the value of this shape for each block.
+    for (int x = 0; x < blocks.length; x++) {
+      for (int y = 0; y < blocks[x].length; y++) {
+        if (blocks[x][y] == 0) {
+          continue;
+        }
+        blocks[x][y] = value;
+
+        //Record the block in the row mask and the bounds of the shape
+        rowMasks[y] |= 1L << x;
+        minX = Math.min(minX, x);
+        maxX = Math.max(maxX, x);
+        minY = Math.min(minY, y);
+        maxY = Math.max(maxY, y);
+      }
+    }
+
+    this.minX = minX;
+    this.maxX = maxX;
+    this.minY = minY;
+    this.maxY = maxY;
+  }
+
+  /**
+   * Create the shape of the specified piece number in its original rotation
+   *
+   * @param piece piece number
+   * @return the created GamePiece
+   */
+  private static GamePiece createShape(int piece) {
+    switch (piece) {
+      //Line
+      case 0 -> {
+        int[][] blocks = {{0, 0, 0}, {1, 1, 1}, {0, 0, 0}};
+        return new GamePiece("Line", blocks, 1, 0);
+      }
+
+      //C
+      case 1 -> {
+        int[][] blocks = {{0, 0, 0}, {1, 1, 1}, {1, 0, 1}};
+        return new GamePiece("C", blocks, 2, 0);
+      }
+
+      //Plus
+      case 2 -> {
+        int[][] blocks = {{0, 1, 0}, {1, 1, 1}, {0, 1, 0}};
+        return new GamePiece("Plus", blocks, 3, 0);
+      }
+
+      //Dot
+      case 3 -> {
+        int[][] blocks = {{0, 0, 0}, {0, 1, 0}, {0, 0, 0}};
+        return new GamePiece("Dot", blocks, 4, 0);
+      }
+
+      //Square
+      case 4 -> {
+        int[][] blocks = {{1, 1, 0}, {1, 1, 0}, {0, 0, 0}};
+        return new GamePiece("Square", blocks, 5, 0);
+      }
+
+      //L
+      case 5 -> {
+        int[][] blocks = {{0, 0, 0}, {1, 1, 1}, {0, 0, 1}};
+        return new GamePiece("L", blocks, 6, 0);
+      }
+
+      //J
+      case 6 -> {
+        int[][] blocks = {{0, 0, 1}, {1, 1, 1}, {0, 0, 0}};
+        return new GamePiece("J", blocks, 7, 0);
+      }
+
+      //S
+      case 7 -> {
+        int[][] blocks = {{0, 0, 0}, {0, 1, 1}, {1, 1, 0}};
+        return new GamePiece("S", blocks, 8, 0);
+      }
+
+      //Z
+      case 8 -> {
+        int[][] blocks = {{1, 1, 0}, {0, 1, 1}, {0, 0, 0}};
+        return new GamePiece("Z", blocks, 9, 0);
+      }
+
+      //T
+      case 9 -> {
+        int[][] blocks = {{1, 0, 0}, {1, 1, 0}, {1, 0, 0}};
+        return new GamePiece("T", blocks, 10, 0);
+      }
+
+      //X
+      case 10 -> {
+        int[][] blocks = {{1, 0, 1}, {0, 1, 0}, {1, 0, 1}};
+        return new GamePiece("X", blocks, 11, 0);
+      }
+
+      //Corner
+      case 11 -> {
+        int[][] blocks = {{0, 0, 0}, {1, 1, 0}, {1, 0, 0}};
+        return new GamePiece("Corner", blocks, 12, 0);
+      }
+
+      //Inverse Corner
+      case 12 -> {
+        int[][] blocks = {{1, 0, 0}, {1, 1, 0}, {0, 0, 0}};
+        return new GamePiece("Inverse Corner", blocks, 13, 0);
+      }
+
+      //Diagonal
+      case 13 -> {
+        int[][] blocks = {{1, 0, 0}, {0, 1, 0}, {0, 0, 1}};
+        return new GamePiece("Diagonal", blocks, 14, 0);
+      }
+
+      //Double
+      case 14 -> {
+        int[][] blocks = {{0, 1, 0}, {0, 1, 0}, {0, 0, 0}};
+        return new GamePiece("Double", blocks, 15, 0);
+      }
+
+      //V
+      case 15 -> {
+        int[][] blocks = {{1, 0, 0}, {0, 1, 0}, {1, 0, 0}};
+        return new GamePiece("V", blocks, 16, 0);
+      }
+
+      //Y
+      case 16 -> {
+        int[][] blocks = {{1, 0, 0}, {0, 1, 1}, {1, 0, 0}};
+        return new GamePiece("Y", blocks, 17, 0);
+      }
+
+      //Small Diagonal
+      case 17 -> {
+        int[][] blocks = {{0, 0, 1}, {0, 1, 0}, {0, 0, 0}};
+        return new GamePiece("smallDiagonal", blocks, 18, 0);
+      }
+    }
+
+    //Not a valid piece number
+    throw new IndexOutOfBoundsException("No such piece: " + piece);
+  }
+
+  /**
+   * Create a new GamePiece of the specified piece number
+   *
+   * @param piece piece number
+   * @return the created GamePiece
+   */
+  public static GamePiece createPiece(int piece) {
+    return createPiece(piece, 0);
+  }
+
+  /**
+   * Create a new GamePiece of the specified piece number and rotation
+   *
+   * @param piece    piece number
+   * @param rotation number of times to rotate
+   * @return the created GamePiece
+   */
+  public static GamePiece createPiece(int piece, int rotation) {
+    //Not a valid piece number
+    if (piece < 0 || piece >= PIECES) {
+      throw new IndexOutOfBoundsException("No such piece: " + piece);
+    }
+
+    return catalogue[piece][Math.floorMod(rotation, ROTATIONS)];
+  }
+
+  /**
+   * Get the value of this piece
+   *
+   * @return piece value
+   */
+  public int getValue() {
+    return value;
+  }
+
+  /**
+   * Get the piece number of this piece
+   *
+   * @return piece number
+   */
+  public int getPiece() {
+    return value - 1;
+  }
+
+  /**
+   * Get the number of times this piece has been rotated from its original shape
+   *
+   * @return rotation between 0 and 3
+   */
+  public int getRotation() {
+    return rotation;
+  }
+
+  /**
+   * Get the block makeup of this piece. The array is shared and must not be modified
+   *
+   * @return 2D grid of the blocks representing the piece shape
+   */
+  public int[][] getBlocks() {
+    return blocks;
+  }
+
+  /**
+   * Get the blocks in a row of this piece as a bitmask, shifted so that bit 0 of the piece lands on
+   * the given column
+   *
+   * @param y     row of the piece
+   * @param shift column of the grid the left of the piece is on
+   * @return the shifted bitmask of the row
+   */
+  public long getRowMask(int y, int shift) {
+    return shift >= 0 ? rowMasks[y] << shift : rowMasks[y] >>> -shift;
+  }
+
+  /**
+   * Get the first column of the piece with a block
+   *
+   * @return column between 0 and 2
+   */
+  public int getMinX() {
+    return minX;
+  }
+
+  /**
+   * Get the last column of the piece with a block
+   *
+   * @return column between 0 and 2
+   */
+  public int getMaxX() {
+    return maxX;
+  }
+
+  /**
+   * Get the first row of the piece with a block
+   *
+   * @return row between 0 and 2
+   */
+  public int getMinY() {
+    return minY;
+  }
+
+  /**
+   * Get the last row of the piece with a block
+   *
+   * @return row between 0 and 2
+   */
+  public int getMaxY() {
+    return maxY;
+  }
+
+  /**
+   * Get this piece rotated the given number of rotations
+   *
+   * @param rotations number of rotations
+   * @return the rotated piece
+   */
+  public GamePiece rotate(int rotations) {
+    return catalogue[getPiece()][Math.floorMod(rotation + rotations, ROTATIONS)];
+  }
+
+  /**
+   * Get this piece rotated exactly once
+   *
+   * @return the rotated piece
+   */
+  public GamePiece rotate() {
+    return rotate(1);
+  }
+
+  /**
+   * Build the next rotation of this piece by rotating it's 3x3 grid. Only used to fill the
+   * catalogue
+   *
+   * @return a new piece rotated once from this one
+   */
+  private GamePiece rotated() {
+    int[][] rotated = new int[blocks.length][blocks[0].length];
+    rotated[2][0] = blocks[0][0];
+    rotated[1][0] = blocks[0][1];
+    rotated[0][0] = blocks[0][2];
+
+    rotated[2][1] = blocks[1][0];
+    rotated[1][1] = blocks[1][1];
+    rotated[0][1] = blocks[1][2];
+
+    rotated[2][2] = blocks[2][0];
+    rotated[1][2] = blocks[2][1];
+    rotated[0][2] = blocks[2][2];
+
+    return new GamePiece(name, rotated, value, rotation + 1);
+  }
+
+
+  /**
+   * Return the string representation of this piece
+   *
+   * @return the name of this piece
+   */
+  public String toString() {
+    return this.name;
+  }
+
+
+}
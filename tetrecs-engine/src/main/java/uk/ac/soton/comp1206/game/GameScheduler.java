@@ -0,0 +1,45 @@
+package uk.ac.soton.comp1206.game;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A GameScheduler runs the countdowns of games. Every game schedules its countdown when it starts,
+ * again whenever it runs out before the deadline or gets shorter, and cancels it when it pauses or
+ * stops, so both must be cheap, and one scheduler is shared by every game in the process rather
+ * than each game starting a thread of its own.
+ * <p>
+ * Tasks run on the scheduler's own threads, so they must not take long.
+ */
+public interface GameScheduler {
+
+  /**
+   * Run a task once after a delay
+   *
+   * @param task  the task to run
+   * @param delay how long to wait
+   * @param unit  the unit of the delay
+   * @return the scheduled run, to cancel it
+   */
+  Timeout schedule(Runnable task, long delay, TimeUnit unit);
+
+  /**
+   * Get the scheduler shared by every game that is not given another. It runs on a few daemon
+   * threads, however many games there are
+   *
+   * @return the shared scheduler
+   */
+  static GameScheduler shared() {
+    return ExecutorScheduler.SHARED;
+  }
+
+  /**
+   * A task scheduled to run once
+   */
+  interface Timeout {
+
+    /**
+     * Stop the task from running, if it has not already started. Does nothing if it has
+     */
+    void cancel();
+  }
+}
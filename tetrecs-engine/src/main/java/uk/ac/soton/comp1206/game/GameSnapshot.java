@@ -0,0 +1,259 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * A GameSnapshot is an immutable copy of the state of a Game at one moment: which blocks of the
+ * grid are filled, the score, level, lives and multiplier, the current and following piece and
+ * where the player is aiming.
+ * <p>
+ * The Game publishes a new snapshot after every change, so other threads (a hint solver, a
+ * spectator feed or an autosave) can read a consistent state without locks and without touching
+ * JavaFX properties.
+ * <p>
+ * Snapshots share their row bits with the snapshot before them while the grid is unchanged, so a
+ * change of aim, rotation, swap or lost life only allocates the snapshot itself, 64 bytes on a
+ * 64-bit JVM with compressed oops. A change to the grid allocates the row bits as well, another 16
+ * bytes plus 8 per row.
+ */
+public class GameSnapshot {
+
+  /**
+   * Number of columns in the grid
+   */
+  private final int cols;
+
+  /**
+   * Number of rows in the grid
+   */
+  private final int rows;
+
+  /**
+   * The occupancy bits of each row of the grid, where bit x is set if the block is not empty
+   */
+  private final long[] rowBits;
+
+  /**
+   * The score of the game
+   */
+  private final int score;
+
+  /**
+   * The level of the game
+   */
+  private final int level;
+
+  /**
+   * The lives left in the game
+   */
+  private final int lives;
+
+  /**
+   * The multiplier of the game
+   */
+  private final int multiplier;
+
+  /**
+   * The piece that will be placed next
+   */
+  private final GamePiece currentPiece;
+
+  /**
+   * The piece after the current piece
+   */
+  private final GamePiece followingPiece;
+
+  /**
+   * The column the player is aiming at
+   */
+  private final int aimX;
+
+  /**
+   * The row the player is aiming at
+   */
+  private final int aimY;
+
+  /**
+   * The hash of the grid and pieces
+   */
+  private final long stateHash;
+
+  /**
+   * Create a new snapshot. The row bits are copied from the grid so later changes do not show,
+   * unless they are the same as those of the previous snapshot, which are shared instead
+   *
+   * @param grid           the grid of the game
+   * @param score          the score
+   * @param level          the level
+   * @param lives          the lives left
+   * @param multiplier     the multiplier
+   * @param currentPiece   the current piece
+   * @param followingPiece the following piece
+   * @param aimX           the column aimed at
+   * @param aimY           the row aimed at
+   * @param stateHash      the hash of the grid and pieces
+   * @param previous       the snapshot this one replaces, or null if there is none
+   */
+  GameSnapshot(Grid grid, int score, int level, int lives, int multiplier,
+      GamePiece currentPiece, GamePiece followingPiece, int aimX, int aimY, long stateHash,
+      GameSnapshot previous) {
+    this.cols = grid.getCols();
+    this.rows = grid.getRows();
+    this.score = score;
+    this.level = level;
+    this.lives = lives;
+    this.multiplier = multiplier;
+    this.currentPiece = currentPiece;
+    this.followingPiece = followingPiece;
+    this.aimX = aimX;
+    this.aimY = aimY;
+    this.stateHash = stateHash;
+
+    //Share the rows of the previous snapshot if the grid has not changed since, otherwise copy the
+    //occupancy of each row
+    if (previous != null && previous.sameRows(grid)) {
+      rowBits = previous.rowBits;
+    } else {
+      rowBits = new long[rows];
+      for (int y = 0; y < rows; y++) {
+        rowBits[y] = grid.getRowBits(y);
+      }
+    }
+  }
+
+  /**
+   * Check if the rows of this snapshot are the same as those of a grid
+   *
+   * @param grid the grid
+   * @return true if the grid is the same size and has the same blocks filled
+   */
+  private boolean sameRows(Grid grid) {
+    if (grid.getCols() != cols || grid.getRows() != rows) {
+      return false;
+    }
+    for (int y = 0; y < rows; y++) {
+      if (grid.getRowBits(y) != rowBits[y]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Get the number of columns in the grid
+   *
+   * @return number of columns
+   */
+  public int getCols() {
+    return cols;
+  }
+
+  /**
+   * Get the number of rows in the grid
+   *
+   * @return number of rows
+   */
+  public int getRows() {
+    return rows;
+  }
+
+  /**
+   * Get the occupancy of a row as a bitmask, where bit x is set if column x is not empty
+   *
+   * @param y row
+   * @return occupancy bits of the row
+   */
+  public long getRowBits(int y) {
+    return rowBits[y];
+  }
+
+  /**
+   * Check if the block at the given x and y index holds a piece
+   *
+   * @param x column
+   * @param y row
+   * @return true if the block is not empty
+   */
+  public boolean isOccupied(int x, int y) {
+    return (rowBits[y] & (1L << x)) != 0;
+  }
+
+  /**
+   * Get the score
+   *
+   * @return score
+   */
+  public int getScore() {
+    return score;
+  }
+
+  /**
+   * Get the level
+   *
+   * @return level
+   */
+  public int getLevel() {
+    return level;
+  }
+
+  /**
+   * Get the lives left
+   *
+   * @return lives
+   */
+  public int getLives() {
+    return lives;
+  }
+
+  /**
+   * Get the multiplier
+   *
+   * @return multiplier
+   */
+  public int getMultiplier() {
+    return multiplier;
+  }
+
+  /**
+   * Get the piece that will be placed next
+   *
+   * @return current piece
+   */
+  public GamePiece getCurrentPiece() {
+    return currentPiece;
+  }
+
+  /**
+   * Get the piece after the current piece
+   *
+   * @return following piece
+   */
+  public GamePiece getFollowingPiece() {
+    return followingPiece;
+  }
+
+  /**
+   * Get the column the player is aiming at
+   *
+   * @return x location of the aim
+   */
+  public int getAimX() {
+    return aimX;
+  }
+
+  /**
+   * Get the row the player is aiming at
+   *
+   * @return y location of the aim
+   */
+  public int getAimY() {
+    return aimY;
+  }
+
+  /**
+   * Get the hash of the grid and pieces, as given by Game.stateHash
+   *
+   * @return the hash of the state
+   */
+  public long getStateHash() {
+    return stateHash;
+  }
+}
@@ -0,0 +1,463 @@
+package uk.ac.soton.comp1206.game;
+
+import java.util.Arrays;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.event.GridChangedListener;
+
+/**
+ * The Grid is a model which holds the state of a game board. It is made up of a set of Integer
+ * values arranged in a 2D arrow, with rows and columns.
+ * <p>
+ * The Grid stores its state in primitive arrays: an occupancy bitboard with one long per row (bit x
+ * is set when column x of that row holds a block) and a byte per block holding its colour value.
+ * Game logic reads these directly, so checking or placing a piece never touches a property object.
+ * <p>
+ * The Grid contains functions related to modifying the model, for example, placing a piece inside
+ * the grid.
+ * <p>
+ * The Grid should be linked to a GameBoard for it's display. The GameBoard observes the Grid through
+ * a GridChangedListener and mirrors each change into the properties its blocks are bound to.
+ */
+public class Grid {
+
+  private static final Logger logger = LogManager.getLogger(Game.class);
+
+  /**
+   * The largest number of columns a grid can have, one for each bit of a row
+   */
+  public static final int MAX_COLS = Long.SIZE;
+
+  /**
+   * The number of columns in this grid
+   */
+  private final int cols;
+
+  /**
+   * The number of rows in this grid
+   */
+  private final int rows;
+
+  /**
+   * The occupancy bitboard. Holds one long per row where bit x is set if the block is not empty
+   */
+  private final long[] occupied;
+
+  /**
+   * The value of every block, stored row by row at index y * cols + x
+   */
+  private final byte[] values;
+
+  /**
+   * The number of blocks that are not empty in each column
+   */
+  private final int[] colCounts;
+
+  /**
+   * The Zobrist hash of the filled blocks
+   */
+  private long hash;
+
+  /**
+   * The occupancy bits of a row with every column filled
+   */
+  private final long fullRow;
+
+  /**
+   * Listener to call when the value of a block changes
+   */
+  private GridChangedListener gridChangedListener;
+
+  /**
+   * Create a new Grid with the specified number of columns and rows and initialise them
+   *
+   * @param cols number of columns
+   * @param rows number of rows
+   */
+  public Grid(int cols, int rows) {
+    //Each row is held in a single long
+    if (cols < 1 || cols > MAX_COLS || rows < 1) {
+      throw new IllegalArgumentException("Unsupported grid size: " + cols + " x " + rows);
+    }
+
+    this.cols = cols;
+    this.rows = rows;
+
+    //Create the grid itself, every block starts empty
+    occupied = new long[rows];
+    values = new byte[cols * rows];
+    colCounts = new int[cols];
+    fullRow = cols == MAX_COLS ? -1L : (1L << cols) - 1;
+    logger.info("Making grid");
+  }
+
+  /**
+   * Create a new Grid holding a copy of the blocks of another grid. Listeners are not copied
+   *
+   * @param other grid to copy
+   */
+  public Grid(Grid other) {
+    this.cols = other.cols;
+    this.rows = other.rows;
+    this.fullRow = other.fullRow;
+    this.occupied = other.occupied.clone();
+    this.values = other.values.clone();
+    this.colCounts = other.colCounts.clone();
+    this.hash = other.hash;
+  }
+
+  /**
+   * Replace the blocks of this grid with a copy of those of another grid of the same size, without
+   * telling the listener. Lets a search reuse one grid for every position it tries
+   *
+   * @param other grid to copy
+   */
+  public void copyFrom(Grid other) {
+    if (other.cols != cols || other.rows != rows) {
+      throw new IllegalArgumentException("Cannot copy a grid of a different size");
+    }
+    System.arraycopy(other.occupied, 0, occupied, 0, rows);
+    System.arraycopy(other.values, 0, values, 0, values.length);
+    System.arraycopy(other.colCounts, 0, colCounts, 0, cols);
+    hash = other.hash;
+  }
+
+  /**
+   * Determine if the GamePiece can be played on the grid
+   *
+   * @param piece  piece to play
+   * @param placeX x location of piece
+   * @param placeY y location of piece
+   * @return state where block and be played
+   */
+  public boolean canPlayPiece(GamePiece piece, int placeX, int placeY) {
+    //Move the start of check to top left
+    placeX = placeX - 1;
+    placeY = placeY - 1;
+
+    //Keep inside the grid
+    if (placeX + piece.getMinX() < 0 || placeX + piece.getMaxX() >= cols
+        || placeY + piece.getMinY() < 0 || placeY + piece.getMaxY() >= rows) {
+      return false;
+    }
+
+    //Check if there is something in the way of each row of the piece
+    for (int y = piece.getMinY(); y <= piece.getMaxY(); y++) {
+      if ((occupied[placeY + y] & piece.getRowMask(y, placeX)) != 0) {
+        return false;
+      }
+    }
+
+    //There is nothing in the way
+    return true;
+  }
+
+  /**
+   * Find every position the piece can be played at in each of its rotations in one pass over the
+   * grid. The result is written into the given buffer, where the long at index
+   * {@code rotation * rows + y} has bit x set if the piece in that rotation can be played at x and y
+   * <p>
+   * The buffer can be reused between calls, so finding placements does not allocate
+   *
+   * @param piece piece to play, in any rotation
+   * @param legal buffer of at least {@code GamePiece.ROTATIONS * rows} longs to fill
+   * @return the total number of positions the piece can be played at
+   */
+  public int findPlacements(GamePiece piece, long[] legal) {
+    int count = 0;
+
+    //Check each rotation of the piece
+    for (int rotation = 0; rotation < GamePiece.ROTATIONS; rotation++) {
+      var rotated = GamePiece.createPiece(piece.getPiece(), rotation);
+
+      //Find the columns the piece can be played at on each row
+      for (int y = 0; y < rows; y++) {
+        long placements = findPlacements(rotated, y);
+        legal[rotation * rows + y] = placements;
+        count += Long.bitCount(placements);
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Check if a piece can be played anywhere on the grid in any rotation. Stops at the first place
+   * found, so is quicker than counting every place with findPlacements
+   *
+   * @param piece piece to play, in any rotation
+   * @return true if the piece fits somewhere
+   */
+  public boolean hasPlacement(GamePiece piece) {
+    for (int rotation = 0; rotation < GamePiece.ROTATIONS; rotation++) {
+      var rotated = GamePiece.createPiece(piece.getPiece(), rotation);
+      for (int y = 0; y < rows; y++) {
+        if (findPlacements(rotated, y) != 0) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Find every column the piece can be played at on a row. Each block of the piece rules out the
+   * columns where the block would land on something or fall off the grid
+   *
+   * @param piece  piece to play
+   * @param placeY y location of piece
+   * @return bitmask where bit x is set if the piece can be played at x
+   */
+  private long findPlacements(GamePiece piece, int placeY) {
+    //Move the start of check to the top
+    placeY = placeY - 1;
+
+    //Keep inside the grid
+    if (placeY + piece.getMinY() < 0 || placeY + piece.getMaxY() >= rows) {
+      return 0;
+    }
+
+    long blocked = 0;
+    for (int y = piece.getMinY(); y <= piece.getMaxY(); y++) {
+      //Treat the columns past the edge of the grid as full
+      long row = occupied[placeY + y] | ~fullRow;
+      long mask = piece.getRowMask(y, 0);
+
+      //Block to the left of the centre, the column left of the first is off the grid
+      if ((mask & 1) != 0) {
+        blocked |= (row << 1) | 1L;
+      }
+      //Block in line with the centre
+      if ((mask & 2) != 0) {
+        blocked |= row;
+      }
+      //Block to the right of the centre, the column right of the last is off the grid
+      if ((mask & 4) != 0) {
+        blocked |= (row >>> 1) | Long.MIN_VALUE;
+      }
+    }
+    return ~blocked & fullRow;
+  }
+
+  /**
+   * Play the GamePiece in the Grid
+   *
+   * @param piece  piece to play
+   * @param placeX x location of piece
+   * @param placeY y location of piece
+   * @return state where block is placed
+   */
+  public boolean playPiece(GamePiece piece, int placeX, int placeY) {
+    //Determine if the block can be placed
+    if (!canPlayPiece(piece, placeX, placeY)) {
+      return false;
+    }
+
+    //Move the start of placement to top left
+    placeX = placeX - 1;
+    placeY = placeY - 1;
+
+    //Loop through every row of the game piece
+    for (int y = piece.getMinY(); y <= piece.getMaxY(); y++) {
+      long mask = piece.getRowMask(y, placeX);
+
+      //Updates the grid of the game board with each block in the row
+      while (mask != 0) {
+        set(Long.numberOfTrailingZeros(mask), placeY + y, piece.getValue());
+        mask &= mask - 1;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Mark the full vertical/horizontal lines after a piece has been played. Only the lines the piece
+   * was played on can have been filled, so only those are checked
+   *
+   * @param piece  the piece that was played
+   * @param placeX x location the piece was played at
+   * @param placeY y location the piece was played at
+   * @param mask   one bitmask per row to fill, where bit x is set if the block at x is in a full line
+   * @return the number of full lines
+   */
+  public int findFullLines(GamePiece piece, int placeX, int placeY, long[] mask) {
+    int lines = 0;
+    Arrays.fill(mask, 0, rows, 0);
+
+    //Check the columns the piece covers to see if a column is full
+    for (int x = placeX - 1 + piece.getMinX(); x <= placeX - 1 + piece.getMaxX(); x++) {
+      if (colCounts[x] == rows) {
+        //Mark every block of the column
+        for (int y = 0; y < rows; y++) {
+          mask[y] |= 1L << x;
+        }
+        lines++;
+      }
+    }
+
+    //Check the rows the piece covers to see if a row is full
+    for (int y = placeY - 1 + piece.getMinY(); y <= placeY - 1 + piece.getMaxY(); y++) {
+      if (occupied[y] == fullRow) {
+        mask[y] = fullRow;
+        lines++;
+      }
+    }
+    return lines;
+  }
+
+  /**
+   * Count the blocks marked in a mask
+   *
+   * @param mask one bitmask per row
+   * @return the number of bits set
+   */
+  public static int countBlocks(long[] mask) {
+    int count = 0;
+    for (long row : mask) {
+      count += Long.bitCount(row);
+    }
+    return count;
+  }
+
+  /**
+   * Update the value at the given x and y index within the grid
+   *
+   * @param x     column
+   * @param y     row
+   * @param value the new value
+   */
+  public void set(int x, int y, int value) {
+    values[y * cols + x] = (byte) value;
+
+    //Keep the occupancy bit and column count in step with the value
+    long bit = 1L << x;
+    if (value == 0) {
+      if ((occupied[y] & bit) != 0) {
+        occupied[y] &= ~bit;
+        colCounts[x]--;
+        hash ^= Zobrist.blockKey(x, y);
+      }
+    } else if ((occupied[y] & bit) == 0) {
+      occupied[y] |= bit;
+      colCounts[x]++;
+      hash ^= Zobrist.blockKey(x, y);
+    }
+
+    //Tell the display about the change
+    if (gridChangedListener != null) {
+      gridChangedListener.gridChanged(x, y, value);
+    }
+  }
+
+  /**
+   * Empty every block marked in the mask
+   *
+   * @param mask one bitmask per row, where bit x is set if the block at x should be emptied
+   */
+  public void clear(long[] mask) {
+    for (int y = 0; y < rows; y++) {
+      long row = mask[y] & occupied[y];
+
+      //Update each block in the row to be empty
+      while (row != 0) {
+        set(Long.numberOfTrailingZeros(row), y, 0);
+        row &= row - 1;
+      }
+    }
+  }
+
+  /**
+   * Get the value represented at the given x and y index within the grid
+   *
+   * @param x column
+   * @param y row
+   * @return the value, or -1 if there is no such index
+   */
+  public int get(int x, int y) {
+    //No such index
+    if (x < 0 || x >= cols || y < 0 || y >= rows) {
+      return -1;
+    }
+
+    //Get the value held at the x and y index provided
+    return values[y * cols + x];
+  }
+
+  /**
+   * Check if the block at the given x and y index holds a piece. The index must be inside the grid
+   *
+   * @param x column
+   * @param y row
+   * @return true if the block is not empty
+   */
+  public boolean isOccupied(int x, int y) {
+    return (occupied[y] & (1L << x)) != 0;
+  }
+
+  /**
+   * Get the occupancy of a row as a bitmask, where bit x is set if column x is not empty
+   *
+   * @param y row
+   * @return occupancy bits of the row
+   */
+  public long getRowBits(int y) {
+    return occupied[y];
+  }
+
+  /**
+   * Check if every block in a row is not empty
+   *
+   * @param y row
+   * @return true if the row is full
+   */
+  public boolean isRowFull(int y) {
+    return occupied[y] == fullRow;
+  }
+
+  /**
+   * Check if every block in a column is not empty
+   *
+   * @param x column
+   * @return true if the column is full
+   */
+  public boolean isColumnFull(int x) {
+    return colCounts[x] == rows;
+  }
+
+  /**
+   * Get the Zobrist hash of the filled blocks in the grid, kept up to date by set
+   *
+   * @return hash of the grid
+   */
+  public long getHash() {
+    return hash;
+  }
+
+  /**
+   * Set the listener to handle an event when the value of a block changes
+   *
+   * @param listener listener to grid changed object
+   */
+  public void setGridChangedListener(GridChangedListener listener) {
+    this.gridChangedListener = listener;
+  }
+
+  /**
+   * Get the number of columns in this game
+   *
+   * @return number of columns
+   */
+  public int getCols() {
+    return cols;
+  }
+
+
+  /**
+   * Get the number of rows in this game
+   *
+   * @return number of rows
+   */
+  public int getRows() {
+    return rows;
+  }
+
+}
@@ -0,0 +1,81 @@
+package uk.ac.soton.comp1206.game;
+
+import java.util.SplittableRandom;
+
+/**
+ * The PieceGenerator produces the sequence of pieces for a game. Each piece comes with a random
+ * rotation, picked the same way the game always has.
+ * <p>
+ * The sequence only depends on the seed, so the same seed gives the same game on any machine. A
+ * generator can be split into an independent generator for another thread, and splitting a
+ * generator made from a seed also gives the same result every time.
+ * <p>
+ * A PieceGenerator is not thread safe, each thread should use its own split.
+ */
+public class PieceGenerator {
+
+  /**
+   * The number of rotations a new piece can spawn with
+   */
+  private static final int SPAWN_ROTATIONS = 3;
+
+  /**
+   * The source of random numbers
+   */
+  private final SplittableRandom random;
+
+  /**
+   * Create a new generator with a random seed
+   */
+  public PieceGenerator() {
+    this(new SplittableRandom());
+  }
+
+  /**
+   * Create a new generator that produces the sequence for the given seed
+   *
+   * @param seed seed of the sequence
+   */
+  public PieceGenerator(long seed) {
+    this(new SplittableRandom(seed));
+  }
+
+  /**
+   * Create a new generator from a source of random numbers
+   *
+   * @param random source of random numbers
+   */
+  private PieceGenerator(SplittableRandom random) {
+    this.random = random;
+  }
+
+  /**
+   * Get the next piece in the sequence
+   *
+   * @return the next piece in its spawn rotation
+   */
+  public GamePiece next() {
+    return GamePiece.createPiece(random.nextInt(GamePiece.PIECES), random.nextInt(SPAWN_ROTATIONS));
+  }
+
+  /**
+   * Fill the buffer with the next pieces in the sequence, in order
+   *
+   * @param buffer buffer to fill
+   */
+  public void fill(GamePiece[] buffer) {
+    for (int i = 0; i < buffer.length; i++) {
+      buffer[i] = next();
+    }
+  }
+
+  /**
+   * Split off a new generator with its own independent sequence. This generator carries on with a
+   * different sequence afterwards
+   *
+   * @return the new generator
+   */
+  public PieceGenerator split() {
+    return new PieceGenerator(random.split());
+  }
+}
@@ -0,0 +1,159 @@
+package uk.ac.soton.comp1206.game;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A VirtualClock is a clock and a scheduler in one, whose time only moves when it is told to. Give
+ * it to a game as both its clock and its scheduler, with an owner that runs commands straight away,
+ * and the game's countdown runs out as soon as the clock is moved past its deadline, on the thread
+ * moving it. A game where every piece times out is over in microseconds rather than a minute.
+ * <p>
+ * Tasks due at the same time run in the order they were scheduled. A VirtualClock is not thread
+ * safe, and is meant for one game, or a few played by the same thread.
+ */
+public class VirtualClock implements GameClock, GameScheduler {
+
+  /**
+   * The tasks waiting, soonest first
+   */
+  private final PriorityQueue<Task> tasks = new PriorityQueue<>();
+
+  /**
+   * The current time in nanoseconds
+   */
+  private long now = 0;
+
+  /**
+   * Number of tasks scheduled so far, to order tasks due at the same time
+   */
+  private long scheduled = 0;
+
+  /**
+   * Get the current time
+   *
+   * @return the time in nanoseconds since the clock was made
+   */
+  @Override
+  public long nanoTime() {
+    return now;
+  }
+
+  /**
+   * Run a task once the clock has been moved on by a delay
+   *
+   * @param task  the task to run
+   * @param delay how long to wait
+   * @param unit  the unit of the delay
+   * @return the scheduled run, to cancel it
+   */
+  @Override
+  public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+    var scheduledTask = new Task(task, now + Math.max(0, unit.toNanos(delay)), scheduled++);
+    tasks.add(scheduledTask);
+    return scheduledTask;
+  }
+
+  /**
+   * Move the clock on, running every task that falls due on the way with the clock set to the time
+   * it was due
+   *
+   * @param delay how far to move the clock
+   * @param unit  the unit of the delay
+   */
+  public void advance(long delay, TimeUnit unit) {
+    advanceTo(now + unit.toNanos(delay));
+  }
+
+  /**
+   * Move the clock on to a time, running every task that falls due on the way with the clock set
+   * to the time it was due. Does nothing if the time has already passed
+   *
+   * @param time the time to move to in nanoseconds
+   */
+  public void advanceTo(long time) {
+    while (!tasks.isEmpty() && tasks.peek().due <= time) {
+      runNext();
+    }
+    now = Math.max(now, time);
+  }
+
+  /**
+   * Move the clock on to the next task and run it
+   *
+   * @return false if there was no task waiting
+   */
+  public boolean runNext() {
+    Task task = tasks.poll();
+    if (task == null) {
+      return false;
+    }
+    now = Math.max(now, task.due);
+    task.task.run();
+    return true;
+  }
+
+  /**
+   * Get the time the next task is due
+   *
+   * @return the time in nanoseconds, or -1 if there is no task waiting
+   */
+  public long nextDue() {
+    Task task = tasks.peek();
+    return task == null ? -1 : task.due;
+  }
+
+  /**
+   * A task waiting for the clock
+   */
+  private class Task implements Timeout, Comparable<Task> {
+
+    /**
+     * The task to run
+     */
+    private final Runnable task;
+
+    /**
+     * The time it is due
+     */
+    private final long due;
+
+    /**
+     * The order it was scheduled in
+     */
+    private final long order;
+
+    /**
+     * Create a new Task
+     *
+     * @param task  the task to run
+     * @param due   the time it is due
+     * @param order the order it was scheduled in
+     */
+    private Task(Runnable task, long due, long order) {
+      this.task = task;
+      this.due = due;
+      this.order = order;
+    }
+
+    /**
+     * Stop the task from running. Does nothing if it has already run
+     */
+    @Override
+    public void cancel() {
+      tasks.remove(this);
+    }
+
+    /**
+     * Order tasks by when they are due, then by when they were scheduled
+     *
+     * @param other the task to compare to
+     * @return negative if this task runs first
+     */
+    @Override
+    public int compareTo(Task other) {
+      int byDue = Long.compare(due, other.due);
+      return byDue != 0 ? byDue : Long.compare(order, other.order);
+    }
+  }
+}
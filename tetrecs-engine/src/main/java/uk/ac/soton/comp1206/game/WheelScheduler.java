@@ -0,0 +1,389 @@
+package uk.ac.soton.comp1206.game;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A GameScheduler built on a hierarchical timing wheel, for hosting many games at once. Time is cut
+ * into ticks, and the wheel has {@link #LEVELS} levels of {@link #SLOTS} slots each. A slot of the
+ * first level holds the tasks due on one tick, a slot of the next level the tasks due in one span
+ * of {@link #SLOTS} ticks, and so on. When the first level comes round to its first slot again, the
+ * next slot of the level above is emptied into the levels below, so each task only moves down a few
+ * times however far off it is. Scheduling a task and cancelling it are both constant time however
+ * many tasks are waiting, where a heap gets slower as the number of games grows.
+ * <p>
+ * The wheel is only touched by its own thread. Other threads hand it new tasks and cancelled tasks
+ * through lock-free queues, which it takes in at the start of each tick, so scheduling never waits
+ * for the wheel. Tasks run on the wheel's thread, never before they are due and normally within a
+ * tick after, so they must not take long.
+ * <p>
+ * Tasks due further off than the wheel reaches are kept in the last slot it reaches and put back
+ * when it comes round, so any delay works.
+ */
+public class WheelScheduler implements GameScheduler {
+
+  private static final Logger logger = LogManager.getLogger(WheelScheduler.class);
+
+  /**
+   * Number of bits of the tick used by each level
+   */
+  private static final int SLOT_BITS = 6;
+
+  /**
+   * Number of slots in each level
+   */
+  public static final int SLOTS = 1 << SLOT_BITS;
+
+  /**
+   * Number of levels
+   */
+  public static final int LEVELS = 4;
+
+  /**
+   * The furthest ahead in ticks the wheel reaches
+   */
+  private static final long RANGE = 1L << (SLOT_BITS * LEVELS);
+
+  /**
+   * Numbers the threads of every wheel
+   */
+  private static final AtomicInteger threadNumber = new AtomicInteger();
+
+  /**
+   * The length of a tick in nanoseconds
+   */
+  private final long tickNanos;
+
+  /**
+   * When the first tick started, by System.nanoTime
+   */
+  private final long start;
+
+  /**
+   * The slots of each level, by level then slot
+   */
+  private final Slot[][] wheel = new Slot[LEVELS][SLOTS];
+
+  /**
+   * Tasks scheduled and not yet put in the wheel
+   */
+  private final Queue<Task> scheduled = new ConcurrentLinkedQueue<>();
+
+  /**
+   * Tasks cancelled and not yet taken out of the wheel
+   */
+  private final Queue<Task> cancelled = new ConcurrentLinkedQueue<>();
+
+  /**
+   * The thread turning the wheel
+   */
+  private final Thread worker;
+
+  /**
+   * The tick being run, or the last one run between ticks. Only used on the worker
+   */
+  private long tick = 0;
+
+  /**
+   * Number of tasks in the wheel. Only used on the worker
+   */
+  private int size = 0;
+
+  /**
+   * Whether the wheel has been shut down
+   */
+  private volatile boolean shutdown = false;
+
+  /**
+   * Create a new WheelScheduler and start its thread
+   *
+   * @param tick length of a tick, the resolution of the wheel
+   * @param unit unit of the tick
+   */
+  public WheelScheduler(long tick, TimeUnit unit) {
+    tickNanos = unit.toNanos(tick);
+    if (tickNanos <= 0) {
+      throw new IllegalArgumentException("Tick must be at least a nanosecond");
+    }
+    for (Slot[] level : wheel) {
+      for (int slot = 0; slot < SLOTS; slot++) {
+        level[slot] = new Slot();
+      }
+    }
+
+    start = System.nanoTime();
+    worker = new Thread(this::run, "Game wheel " + threadNumber.incrementAndGet());
+    worker.setDaemon(true);
+    worker.start();
+  }
+
+  /**
+   * Run a task once after a delay, on the wheel's thread
+   *
+   * @param task  the task to run
+   * @param delay how long to wait
+   * @param unit  the unit of the delay
+   * @return the scheduled run, to cancel it
+   */
+  @Override
+  public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+    //Round up to a whole tick so the task is never run early
+    long due = System.nanoTime() - start + Math.max(0, unit.toNanos(delay));
+    var scheduledTask = new Task(task, (due + tickNanos - 1) / tickNanos);
+    scheduled.add(scheduledTask);
+    return scheduledTask;
+  }
+
+  /**
+   * Get the length of a tick
+   *
+   * @return length in nanoseconds
+   */
+  public long getTickNanos() {
+    return tickNanos;
+  }
+
+  /**
+   * Stop the thread of this scheduler. Tasks not yet run are dropped
+   */
+  public void shutdown() {
+    shutdown = true;
+    LockSupport.unpark(worker);
+  }
+
+  /**
+   * Turn the wheel a tick at a time until shut down, catching up straight away on any ticks missed
+   */
+  private void run() {
+    while (!shutdown) {
+      long wait = start + (tick + 1) * tickNanos - System.nanoTime();
+      if (wait > 0) {
+        LockSupport.parkNanos(this, wait);
+        continue;
+      }
+
+      tick++;
+      takeCancelled();
+      takeScheduled();
+
+      //Bring the tasks of the next span of each level down once the level below has gone round
+      for (int level = 1; level < LEVELS
+          && (tick & ((1L << (SLOT_BITS * level)) - 1)) == 0; level++) {
+        cascade(level);
+      }
+      expire(wheel[0][(int) (tick & (SLOTS - 1))]);
+    }
+    logger.info("Wheel stopped with {} tasks waiting", size);
+  }
+
+  /**
+   * Take the cancelled tasks out of their slots
+   */
+  private void takeCancelled() {
+    Task task;
+    while ((task = cancelled.poll()) != null) {
+      if (task.slot != null) {
+        task.slot.remove(task);
+        size--;
+      }
+    }
+  }
+
+  /**
+   * Put the newly scheduled tasks in the wheel, unless cancelled already
+   */
+  private void takeScheduled() {
+    Task task;
+    while ((task = scheduled.poll()) != null) {
+      if (task.state == Task.WAITING) {
+        add(task);
+        size++;
+      }
+    }
+  }
+
+  /**
+   * Put a task in the slot for its tick, the lowest level whose span reaches it
+   *
+   * @param task the task
+   */
+  private void add(Task task) {
+    //A task already due runs on this tick, and one too far off waits in the last slot reached
+    long due = Math.max(task.dueTick, tick);
+    long ahead = Math.min(due - tick, RANGE - 1);
+    long at = tick + ahead;
+
+    int level = 0;
+    while (ahead >= 1L << (SLOT_BITS * (level + 1))) {
+      level++;
+    }
+    wheel[level][(int) ((at >>> (SLOT_BITS * level)) & (SLOTS - 1))].add(task);
+  }
+
+  /**
+   * Empty the slot of a level for the span just reached into the levels below
+   *
+   * @param level the level
+   */
+  private void cascade(int level) {
+    Slot slot = wheel[level][(int) ((tick >>> (SLOT_BITS * level)) & (SLOTS - 1))];
+    for (Task task = slot.clear(); task != null; ) {
+      Task next = task.next;
+      task.next = null;
+      add(task);
+      task = next;
+    }
+  }
+
+  /**
+   * Run every task in a slot of the first level
+   *
+   * @param slot the slot for this tick
+   */
+  private void expire(Slot slot) {
+    for (Task task = slot.clear(); task != null; ) {
+      Task next = task.next;
+      task.next = null;
+      size--;
+      if (task.dueTick > tick) {
+        //Waiting longer than the wheel reaches, so put it back
+        add(task);
+        size++;
+      } else if (Task.STATE.compareAndSet(task, Task.WAITING, Task.EXPIRED)) {
+        try {
+          task.task.run();
+        } catch (RuntimeException e) {
+          logger.error("Scheduled task failed", e);
+        }
+      }
+      task = next;
+    }
+  }
+
+  /**
+   * A task scheduled on the wheel. Its links are only used on the worker
+   */
+  private class Task implements Timeout {
+
+    private static final int WAITING = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+
+    private static final AtomicIntegerFieldUpdater<Task> STATE =
+        AtomicIntegerFieldUpdater.newUpdater(Task.class, "state");
+
+    /**
+     * The task to run
+     */
+    private final Runnable task;
+
+    /**
+     * The tick the task is due on
+     */
+    private final long dueTick;
+
+    /**
+     * Whether the task is waiting, cancelled or has run
+     */
+    private volatile int state = WAITING;
+
+    /**
+     * The slot the task is in, or null if it is not in one
+     */
+    private Slot slot;
+
+    /**
+     * The tasks before and after this one in its slot
+     */
+    private Task previous;
+    private Task next;
+
+    /**
+     * Create a new Task
+     *
+     * @param task    the task to run
+     * @param dueTick the tick it is due on
+     */
+    private Task(Runnable task, long dueTick) {
+      this.task = task;
+      this.dueTick = dueTick;
+    }
+
+    /**
+     * Stop the task from running. The wheel takes it out of its slot on the next tick
+     */
+    @Override
+    public void cancel() {
+      if (STATE.compareAndSet(this, WAITING, CANCELLED)) {
+        cancelled.add(this);
+      }
+    }
+  }
+
+  /**
+   * The tasks in one slot of the wheel, as a list linked through the tasks themselves so a task can
+   * be taken out without searching for it
+   */
+  private static class Slot {
+
+    /**
+     * The first task in the slot, or null if it is empty
+     */
+    private Task head;
+
+    /**
+     * Add a task to the front of the slot
+     *
+     * @param task the task
+     */
+    private void add(Task task) {
+      task.slot = this;
+      task.previous = null;
+      task.next = head;
+      if (head != null) {
+        head.previous = task;
+      }
+      head = task;
+    }
+
+    /**
+     * Take a task out of the slot
+     *
+     * @param task the task, which must be in this slot
+     */
+    private void remove(Task task) {
+      if (task.previous != null) {
+        task.previous.next = task.next;
+      } else {
+        head = task.next;
+      }
+      if (task.next != null) {
+        task.next.previous = task.previous;
+      }
+      task.slot = null;
+      task.previous = null;
+      task.next = null;
+    }
+
+    /**
+     * Empty the slot
+     *
+     * @return the tasks that were in it, linked by next
+     */
+    private Task clear() {
+      Task first = head;
+      head = null;
+      for (Task task = first; task != null; task = task.next) {
+        task.slot = null;
+        task.previous = null;
+      }
+      return first;
+    }
+  }
+}
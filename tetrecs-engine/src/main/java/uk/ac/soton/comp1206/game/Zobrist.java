@@ -0,0 +1,98 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * Zobrist keys for hashing game states. Every block of a grid and every piece, in each rotation and
+ * as either the current or following piece, has a fixed random 64-bit key. The hash of a state is
+ * the XOR of the keys of its filled blocks and its two pieces, so it can be kept up to date by
+ * XORing a key in or out as each block or piece changes.
+ * <p>
+ * Only whether a block is filled counts towards the hash, not its colour, as the colour does not
+ * change how the game plays. The keys are the same on every run, so hashes can be stored and
+ * compared between runs.
+ */
+public class Zobrist {
+
+  /**
+   * Seed the keys are generated from
+   */
+  private static final long SEED = 0x7E7EC5L;
+
+  /**
+   * Keys for the current piece and the following piece, indexed by piece number then rotation
+   */
+  private static final long[][][] pieceKeys =
+      new long[2][GamePiece.PIECES][GamePiece.ROTATIONS];
+
+  static {
+    //Give every piece in every position its own key, after the keys used for blocks
+    long index = -1;
+    for (int position = 0; position < 2; position++) {
+      for (int piece = 0; piece < GamePiece.PIECES; piece++) {
+        for (int rotation = 0; rotation < GamePiece.ROTATIONS; rotation++) {
+          pieceKeys[position][piece][rotation] = mix(SEED + index--);
+        }
+      }
+    }
+  }
+
+  /**
+   * Not to be constructed, only holds static keys
+   */
+  private Zobrist() {
+  }
+
+  /**
+   * Get the key of a filled block
+   *
+   * @param x column
+   * @param y row
+   * @return the key of the block
+   */
+  public static long blockKey(int x, int y) {
+    return mix(SEED + (long) y * Grid.MAX_COLS + x);
+  }
+
+  /**
+   * Get the key of the current piece
+   *
+   * @param piece the current piece
+   * @return the key of the piece
+   */
+  public static long currentKey(GamePiece piece) {
+    return piece == null ? 0 : pieceKeys[0][piece.getPiece()][piece.getRotation()];
+  }
+
+  /**
+   * Get the key of the following piece
+   *
+   * @param piece the following piece
+   * @return the key of the piece
+   */
+  public static long followingKey(GamePiece piece) {
+    return piece == null ? 0 : pieceKeys[1][piece.getPiece()][piece.getRotation()];
+  }
+
+  /**
+   * Get the key of a multiplier. Not part of the hash of a game state, but searches that score
+   * positions by the points they lead to add it, as the points depend on the multiplier
+   *
+   * @param multiplier the multiplier
+   * @return the key of the multiplier
+   */
+  public static long multiplierKey(int multiplier) {
+    //After the keys used for pieces
+    return mix(SEED - 2L * GamePiece.PIECES * GamePiece.ROTATIONS - 1 - multiplier);
+  }
+
+  /**
+   * Scramble an index into a well distributed 64-bit key (the SplitMix64 finaliser)
+   *
+   * @param z index to scramble
+   * @return the key
+   */
+  private static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+}
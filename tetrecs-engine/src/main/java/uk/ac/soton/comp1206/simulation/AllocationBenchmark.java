@@ -0,0 +1,449 @@
+package uk.ac.soton.comp1206.simulation;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import uk.ac.soton.comp1206.event.EndGameListener;
+import uk.ac.soton.comp1206.event.GameLoopListener;
+import uk.ac.soton.comp1206.event.GridChangedListener;
+import uk.ac.soton.comp1206.event.LineClearedListener;
+import uk.ac.soton.comp1206.event.NextPieceListener;
+import uk.ac.soton.comp1206.event.SoundListener;
+import uk.ac.soton.comp1206.event.StatsListener;
+import uk.ac.soton.comp1206.game.EndReason;
+import uk.ac.soton.comp1206.game.Game;
+import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.game.Grid;
+import uk.ac.soton.comp1206.game.VirtualClock;
+
+/**
+ * The AllocationBenchmark counts the bytes allocated on the heap by playing a piece, from placing
+ * it to clearing its lines, scoring it and telling the listeners. Pieces are played at the first
+ * place they fit, one after another, so lines are cleared often. Three ways of playing are
+ * measured:
+ * <ul>
+ *   <li>Grid: Grid.playPiece, Grid.findFullLines and Grid.clear on a grid on its own, which is
+ *   emptied when a piece does not fit</li>
+ *   <li>Game: Game.placeBlock with a listener of every kind attached, told straight away</li>
+ *   <li>Published: Game.placeBlock submitted as a command, with the events of each batch handed
+ *   to a publisher, as the UI plays. The owner and publisher run what they are given on the
+ *   calling thread, so what a real executor such as Platform.runLater allocates is not
+ *   counted</li>
+ * </ul>
+ * Games are timed by a VirtualClock that is never moved on. When the current piece does not fit
+ * in its rotation it is rotated, or swapped if it does not fit at all, and when a game ends a new
+ * one is started. Only the placements are counted, read from the thread's own allocation count
+ * with com.sun.management.ThreadMXBean before and after each one. That needs the jdk.management
+ * module, on the module path run with --add-modules jdk.management.
+ * <p>
+ * A placement in a game still allocates the GameSnapshot it publishes, as snapshots are immutable
+ * and other threads may hold on to them. A placement that raises the level shortens the countdown,
+ * which is then scheduled again. Run it with logging above INFO, as writing the log lines
+ * allocates.
+ */
+public class AllocationBenchmark {
+
+  /**
+   * Every rotation of every piece, by piece then rotation
+   */
+  private static final GamePiece[][] pieces = new GamePiece[GamePiece.PIECES][GamePiece.ROTATIONS];
+
+  static {
+    for (int piece = 0; piece < GamePiece.PIECES; piece++) {
+      for (int rotation = 0; rotation < GamePiece.ROTATIONS; rotation++) {
+        pieces[piece][rotation] = GamePiece.createPiece(piece, rotation);
+      }
+    }
+  }
+
+  /**
+   * A way of playing pieces
+   */
+  private enum Way {
+    /**
+     * On a grid on its own
+     */
+    GRID,
+
+    /**
+     * In a game, telling the listeners straight away
+     */
+    GAME,
+
+    /**
+     * In a game, submitting every change and publishing the events of each batch
+     */
+    PUBLISHED
+  }
+
+  /**
+   * The way pieces are played
+   */
+  private final Way way;
+
+  /**
+   * Number of columns of the grid
+   */
+  private final int cols;
+
+  /**
+   * Number of rows of the grid
+   */
+  private final int rows;
+
+  /**
+   * The seeds of the games
+   */
+  private final SplittableRandom seeds;
+
+  /**
+   * The listener of every event of the games
+   */
+  private final Listeners listeners = new Listeners();
+
+  /**
+   * Plays the current piece at placeX, placeY. Made once so submitting it allocates nothing
+   */
+  private final Runnable place = this::place;
+
+  /**
+   * The grid played on, the game's grid when playing a game
+   */
+  private Grid grid;
+
+  /**
+   * The game being played, or null when playing on a grid on its own
+   */
+  private Game game;
+
+  /**
+   * The places each rotation of a piece fits, reused for every piece
+   */
+  private final long[] legal;
+
+  /**
+   * The blocks in full lines, reused for every piece
+   */
+  private final long[] clearMask;
+
+  /**
+   * A mask of every block, to empty the grid
+   */
+  private final long[] everything;
+
+  /**
+   * Where the next piece is played
+   */
+  private int placeX;
+
+  /**
+   * Where the next piece is played
+   */
+  private int placeY;
+
+  /**
+   * Number of pieces played
+   */
+  private long placed = 0;
+
+  /**
+   * Number of bytes allocated by playing them
+   */
+  private long bytes = 0;
+
+  /**
+   * Number of events the listeners were told of while playing them
+   */
+  private long events = 0;
+
+  /**
+   * Number of lines cleared on the grid on its own
+   */
+  private long lines = 0;
+
+  /**
+   * Number of times the grid was emptied or a new game started
+   */
+  private long restarts = 0;
+
+  /**
+   * Create a new AllocationBenchmark
+   *
+   * @param way  the way pieces are played
+   * @param cols number of columns of the grid
+   * @param rows number of rows of the grid
+   * @param seed seed of the games
+   */
+  private AllocationBenchmark(Way way, int cols, int rows, long seed) {
+    this.way = way;
+    this.cols = cols;
+    this.rows = rows;
+    this.seeds = new SplittableRandom(seed);
+    this.legal = new long[GamePiece.ROTATIONS * rows];
+    this.clearMask = new long[rows];
+    this.everything = new long[rows];
+    Arrays.fill(everything, -1L);
+
+    if (way == Way.GRID) {
+      grid = new Grid(cols, rows);
+    } else {
+      newGame();
+    }
+  }
+
+  /**
+   * Start a new game with every listener attached
+   */
+  private void newGame() {
+    game = new Game(cols, rows, seeds.nextLong());
+    grid = game.getGrid();
+    var clock = new VirtualClock();
+    game.setClock(clock);
+    game.setScheduler(clock);
+    if (way == Way.PUBLISHED) {
+      game.setOwner(Runnable::run);
+      game.setPublisher(Runnable::run);
+    }
+
+    game.setNextListener(listeners);
+    game.setFollowingPieceListener(listeners);
+    game.setLineClearedListener(listeners);
+    game.setGameLoopListener(listeners);
+    game.setEndGameListener(listeners);
+    game.setStatsListener(listeners);
+    game.setSoundListener(listeners);
+    game.setGridChangedListener(listeners);
+    change(game::start);
+  }
+
+  /**
+   * Change the game the way it is played: straight away, or submitted as a command
+   *
+   * @param change the change
+   */
+  private void change(Runnable change) {
+    if (way == Way.PUBLISHED) {
+      game.submit(change);
+    } else {
+      change.run();
+    }
+  }
+
+  /**
+   * Play the current piece of the game where it was found to fit
+   */
+  private void place() {
+    game.placeBlock(placeX, placeY);
+  }
+
+  /**
+   * Play a number of pieces
+   *
+   * @param count number of pieces
+   */
+  private void play(long count) {
+    long target = placed + count;
+    while (placed < target) {
+      if (way == Way.GRID) {
+        playOnGrid();
+      } else {
+        playInGame();
+      }
+    }
+  }
+
+  /**
+   * Play a piece on the grid on its own, or empty the grid if it does not fit
+   */
+  private void playOnGrid() {
+    int piece = (int) (placed % GamePiece.PIECES);
+    if (grid.findPlacements(pieces[piece][0], legal) == 0) {
+      grid.clear(everything);
+      restarts++;
+      return;
+    }
+
+    //Play at the first place found
+    int at = 0;
+    while (legal[at] == 0) {
+      at++;
+    }
+    var rotated = pieces[piece][at / rows];
+    int x = Long.numberOfTrailingZeros(legal[at]);
+    int y = at % rows;
+
+    long start = Management.allocatedBytes();
+    grid.playPiece(rotated, x, y);
+    int full = grid.findFullLines(rotated, x, y, clearMask);
+    if (full > 0) {
+      grid.clear(clearMask);
+    }
+    bytes += Management.allocatedBytes() - start;
+    lines += full;
+    placed++;
+  }
+
+  /**
+   * Play the current piece of the game at the first place it fits in its rotation. If there is no
+   * such place it is rotated or swapped instead, and if the game is over a new one is started,
+   * neither of which is counted
+   */
+  private void playInGame() {
+    if (game.isOver()) {
+      newGame();
+      restarts++;
+      return;
+    }
+
+    //A piece that fits nowhere is swapped, the following piece must fit or the game would be over
+    var piece = game.getCurrentPiece();
+    if (grid.findPlacements(piece, legal) == 0) {
+      change(game::swapCurrentPiece);
+      return;
+    }
+
+    //Rotate a piece that only fits in another rotation
+    int first = piece.getRotation() * rows;
+    int y = 0;
+    while (y < rows && legal[first + y] == 0) {
+      y++;
+    }
+    if (y == rows) {
+      change(() -> game.rotateCurrentPiece(1));
+      return;
+    }
+    placeX = Long.numberOfTrailingZeros(legal[first + y]);
+    placeY = y;
+
+    long told = listeners.events;
+    long start = Management.allocatedBytes();
+    change(place);
+    bytes += Management.allocatedBytes() - start;
+    events += listeners.events - told;
+    placed++;
+  }
+
+  /**
+   * Run the benchmark from the command line. Options are given as --name=value:
+   * <ul>
+   *   <li>size: grid size as COLSxROWS, at most 64 columns (default 5x5)</li>
+   *   <li>pieces: number of pieces played in each measured run (default 1000000)</li>
+   *   <li>warmup: number of pieces played first to warm up (default 200000)</li>
+   *   <li>seed: seed of the games (default 1)</li>
+   * </ul>
+   *
+   * @param args command line options
+   */
+  public static void main(String[] args) {
+    int cols = 5;
+    int rows = 5;
+    int count = 1_000_000;
+    int warmup = 200_000;
+    long seed = 1;
+
+    for (String arg : args) {
+      String[] option = arg.replaceFirst("^--", "").split("=", 2);
+      if (option.length != 2) {
+        throw new IllegalArgumentException("Options are given as --name=value: " + arg);
+      }
+      switch (option[0]) {
+        case "size" -> {
+          String[] size = option[1].split("x");
+          cols = Integer.parseInt(size[0]);
+          rows = Integer.parseInt(size[1]);
+        }
+        case "pieces" -> count = Integer.parseInt(option[1]);
+        case "warmup" -> warmup = Integer.parseInt(option[1]);
+        case "seed" -> seed = Long.parseLong(option[1]);
+        default -> throw new IllegalArgumentException("No such option: " + option[0]);
+      }
+    }
+
+    if (!Management.JDK_PRESENT) {
+      throw new IllegalStateException(
+          "Counting allocation needs jdk.management, run with --add-modules jdk.management");
+    }
+    if (!Management.countAllocation()) {
+      throw new IllegalStateException("This JVM does not count the memory threads allocate");
+    }
+
+    System.out.printf("%dx%d: %d pieces after %d to warm up%n", cols, rows, count, warmup);
+    for (Way way : Way.values()) {
+      run(new AllocationBenchmark(way, cols, rows, seed), count, warmup);
+    }
+  }
+
+  /**
+   * Warm up one way of playing, then measure it and print the results
+   *
+   * @param benchmark the benchmark to run
+   * @param count     number of pieces to measure
+   * @param warmup    number of pieces to play first
+   */
+  private static void run(AllocationBenchmark benchmark, int count, int warmup) {
+    benchmark.play(warmup);
+    benchmark.placed = 0;
+    benchmark.bytes = 0;
+    benchmark.events = 0;
+    benchmark.lines = 0;
+    benchmark.restarts = 0;
+
+    benchmark.play(count);
+    long placed = benchmark.placed;
+    System.out.printf("%-9s %d bytes over %d pieces, %.3f bytes per piece", benchmark.way,
+        benchmark.bytes, placed, (double) benchmark.bytes / placed);
+    if (benchmark.way == Way.GRID) {
+      System.out.printf(", %.2f lines cleared per piece, grid emptied %d times%n",
+          (double) benchmark.lines / placed, benchmark.restarts);
+    } else {
+      System.out.printf(", %.2f events per piece, %d games%n", (double) benchmark.events / placed,
+          benchmark.restarts);
+    }
+  }
+
+  /**
+   * Listens to every event of a game, counting them
+   */
+  private static class Listeners implements NextPieceListener, LineClearedListener,
+      GameLoopListener, EndGameListener, StatsListener, SoundListener, GridChangedListener {
+
+    /**
+     * Number of events told
+     */
+    private long events = 0;
+
+    @Override
+    public void nextPiece(GamePiece piece) {
+      events++;
+    }
+
+    @Override
+    public void lineCleared(long[] blocks) {
+      events++;
+    }
+
+    @Override
+    public void gameLoop(double countdown) {
+      events++;
+    }
+
+    @Override
+    public void endGame(EndReason reason) {
+      events++;
+    }
+
+    @Override
+    public void statsChanged(int score, int level, int lives, int multiplier) {
+      events++;
+    }
+
+    @Override
+    public void playSound(String sound) {
+      events++;
+    }
+
+    @Override
+    public void gridChanged(int x, int y, int value) {
+      events++;
+    }
+  }
+}
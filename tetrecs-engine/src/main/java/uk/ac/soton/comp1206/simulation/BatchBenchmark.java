@@ -0,0 +1,139 @@
+package uk.ac.soton.comp1206.simulation;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import uk.ac.soton.comp1206.ai.BatchEvaluator;
+import uk.ac.soton.comp1206.ai.WeightedEvaluator;
+
+/**
+ * The BatchBenchmark compares the plain and vector BatchEvaluators. The placements tried are every
+ * placement of every piece in every rotation that fits on the empty board, on random boards with no
+ * full lines. It checks both give the same results, then reports the time taken per placement.
+ * <p>
+ * The vector version is only there when built with the vector profile (mvn -Dvector) and run with
+ * --add-modules jdk.incubator.vector. Without it only the plain version is timed.
+ */
+public class BatchBenchmark {
+
+  /**
+   * Run the benchmark from the command line. Options are given as --name=value:
+   * <ul>
+   *   <li>size: board size as COLSxROWS, at most 64 blocks (default 5x5)</li>
+   *   <li>boards: number of random boards (default 10000)</li>
+   *   <li>rounds: number of times to go over the boards with each version (default 20)</li>
+   *   <li>seed: seed of the boards (default 1)</li>
+   * </ul>
+   *
+   * @param args command line options
+   */
+  public static void main(String[] args) {
+    int cols = 5;
+    int rows = 5;
+    int count = 10000;
+    int rounds = 20;
+    long seed = 1;
+
+    for (String arg : args) {
+      String[] option = arg.replaceFirst("^--", "").split("=", 2);
+      if (option.length != 2) {
+        throw new IllegalArgumentException("Options are given as --name=value: " + arg);
+      }
+      switch (option[0]) {
+        case "size" -> {
+          String[] size = option[1].split("x");
+          cols = Integer.parseInt(size[0]);
+          rows = Integer.parseInt(size[1]);
+        }
+        case "boards" -> count = Integer.parseInt(option[1]);
+        case "rounds" -> rounds = Integer.parseInt(option[1]);
+        case "seed" -> seed = Long.parseLong(option[1]);
+        default -> throw new IllegalArgumentException("No such option: " + option[0]);
+      }
+    }
+
+    var scalar = BatchEvaluator.scalar(cols, rows, WeightedEvaluator.DEFAULT);
+    var vector = BatchEvaluator.vector(cols, rows, WeightedEvaluator.DEFAULT);
+    long[] placements = BatchEvaluator.placements(cols, rows);
+    long[] boards = randomBoards(cols, rows, count, seed);
+    var expected = new BatchEvaluator.Results(placements.length);
+    var actual = new BatchEvaluator.Results(placements.length);
+    BatchEvaluator[] evaluators;
+
+    if (vector == null) {
+      System.out.printf("%dx%d: %d placements on %d boards, %s only, no vector version%n", cols,
+          rows, placements.length, count, scalar.getClass().getSimpleName());
+      evaluators = new BatchEvaluator[]{scalar};
+    } else {
+      System.out.printf("%dx%d: %d placements on %d boards, comparing %s with %s%n", cols, rows,
+          placements.length, count, scalar.getClass().getSimpleName(),
+          vector.getClass().getSimpleName());
+      evaluators = new BatchEvaluator[]{scalar, vector};
+
+      //Both versions must agree
+      for (long board : boards) {
+        scalar.evaluate(board, placements, placements.length, expected);
+        vector.evaluate(board, placements, placements.length, actual);
+        if (!Arrays.equals(expected.scores, actual.scores)
+            || !Arrays.equals(expected.lines, actual.lines)
+            || !Arrays.equals(expected.blocks, actual.blocks)) {
+          throw new IllegalStateException("Results differ on board " + Long.toHexString(board));
+        }
+      }
+    }
+
+    //Go over the boards once untimed to warm up, then time the rest
+    for (BatchEvaluator evaluator : evaluators) {
+      long start = 0;
+      for (int round = 0; round <= rounds; round++) {
+        if (round == 1) {
+          start = System.nanoTime();
+        }
+        for (long board : boards) {
+          evaluator.evaluate(board, placements, placements.length, actual);
+        }
+      }
+      double nanos = (double) (System.nanoTime() - start) / rounds / boards.length
+          / placements.length;
+      System.out.printf("%-22s %6.2f ns per placement%n", evaluator.getClass().getSimpleName(),
+          nanos);
+    }
+  }
+
+  /**
+   * Make random boards about half full with no full lines
+   *
+   * @param cols  number of columns of the board
+   * @param rows  number of rows of the board
+   * @param count number of boards
+   * @param seed  seed of the boards
+   * @return the packed boards
+   */
+  private static long[] randomBoards(int cols, int rows, int count, long seed) {
+    var random = new SplittableRandom(seed);
+    long full = cols * rows == Long.SIZE ? -1L : (1L << cols * rows) - 1;
+    long firstRow = cols == Long.SIZE ? -1L : (1L << cols) - 1;
+    long[] boards = new long[count];
+
+    for (int i = 0; i < count; i++) {
+      long board = random.nextLong() & full;
+      //Empty one block of each full row and column
+      for (int y = 0; y < rows; y++) {
+        long row = firstRow << y * cols;
+        if ((board & row) == row) {
+          board &= ~(1L << y * cols + random.nextInt(cols));
+        }
+      }
+      for (int x = 0; x < cols; x++) {
+        long column = 0;
+        for (int y = 0; y < rows; y++) {
+          column |= 1L << y * cols + x;
+        }
+        if ((board & column) == column) {
+          board &= ~(1L << random.nextInt(rows) * cols + x);
+        }
+      }
+      boards[i] = board;
+    }
+    return boards;
+  }
+}
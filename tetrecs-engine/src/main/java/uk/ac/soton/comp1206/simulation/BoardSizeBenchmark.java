@@ -0,0 +1,232 @@
+package uk.ac.soton.comp1206.simulation;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.game.Grid;
+
+/**
+ * The BoardSizeBenchmark measures how the cost of placing pieces and clearing lines grows with the
+ * size of the grid, on square grids from 5x5 up to 64x64. For each size it reports:
+ * <ul>
+ *   <li>find: finding every place a piece fits with Grid.findPlacements, on random grids about
+ *   half full, per piece</li>
+ *   <li>play: playing pieces one after another at the first place they fit, with
+ *   Grid.findPlacements, Grid.playPiece, Grid.findFullLines and Grid.clear, emptying the grid when
+ *   a piece does not fit, per piece played</li>
+ *   <li>clear: filling the one gap of an otherwise full grid with a dot, finding and clearing the
+ *   row and column it completes, then filling them again, per two lines cleared</li>
+ * </ul>
+ * Every result is added up and printed so none of the work can be skipped.
+ */
+public class BoardSizeBenchmark {
+
+  /**
+   * Number of the single block piece
+   */
+  private static final int DOT = 3;
+
+  /**
+   * Run the benchmark from the command line. Options are given as --name=value:
+   * <ul>
+   *   <li>sizes: sizes of the square grids, separated by commas, at most 64 (default
+   *   5,8,10,16,32,64)</li>
+   *   <li>grids: number of random grids to find places on (default 1000)</li>
+   *   <li>pieces: number of pieces played (default 200000)</li>
+   *   <li>clears: number of times a row and column are cleared (default 200000)</li>
+   *   <li>rounds: number of times each is timed after warming up, the fastest being reported
+   *   (default 5)</li>
+   *   <li>seed: seed of the grids (default 1)</li>
+   * </ul>
+   *
+   * @param args command line options
+   */
+  public static void main(String[] args) {
+    int[] sizes = {5, 8, 10, 16, 32, 64};
+    int grids = 1000;
+    int pieces = 200_000;
+    int clears = 200_000;
+    int rounds = 5;
+    long seed = 1;
+
+    for (String arg : args) {
+      String[] option = arg.replaceFirst("^--", "").split("=", 2);
+      if (option.length != 2) {
+        throw new IllegalArgumentException("Options are given as --name=value: " + arg);
+      }
+      switch (option[0]) {
+        case "sizes" -> sizes = Arrays.stream(option[1].split(",")).mapToInt(Integer::parseInt)
+            .toArray();
+        case "grids" -> grids = Integer.parseInt(option[1]);
+        case "pieces" -> pieces = Integer.parseInt(option[1]);
+        case "clears" -> clears = Integer.parseInt(option[1]);
+        case "rounds" -> rounds = Integer.parseInt(option[1]);
+        case "seed" -> seed = Long.parseLong(option[1]);
+        default -> throw new IllegalArgumentException("No such option: " + option[0]);
+      }
+    }
+
+    Grid[][] random = new Grid[sizes.length][];
+    for (int i = 0; i < sizes.length; i++) {
+      random[i] = randomGrids(sizes[i], sizes[i], grids, seed);
+    }
+
+    //Go over every size once untimed first, so the first size is not timed while warming up
+    long total = 0;
+    for (int i = 0; i < sizes.length; i++) {
+      total += find(random[i]);
+      total += play(new Grid(sizes[i], sizes[i]), pieces);
+      total += clear(new Grid(sizes[i], sizes[i]), clears);
+    }
+
+    //Keep the fastest of the rounds
+    System.out.printf("%7s %12s %12s %12s%n", "size", "find ns", "play ns", "clear ns");
+    for (int i = 0; i < sizes.length; i++) {
+      int size = sizes[i];
+      double find = Double.MAX_VALUE;
+      double play = Double.MAX_VALUE;
+      double clear = Double.MAX_VALUE;
+
+      for (int round = 0; round < rounds; round++) {
+        long start = System.nanoTime();
+        total += find(random[i]);
+        long found = System.nanoTime();
+        total += play(new Grid(size, size), pieces);
+        long played = System.nanoTime();
+        total += clear(new Grid(size, size), clears);
+        long cleared = System.nanoTime();
+
+        find = Math.min(find, (double) (found - start) / grids / GamePiece.PIECES);
+        play = Math.min(play, (double) (played - found) / pieces);
+        clear = Math.min(clear, (double) (cleared - played) / clears);
+      }
+      System.out.printf("%7s %12.1f %12.1f %12.1f%n", size + "x" + size, find, play, clear);
+    }
+    System.out.println("Checksum " + total);
+  }
+
+  /**
+   * Find every place every piece fits on every grid
+   *
+   * @param grids the grids
+   * @return the number of places found
+   */
+  private static long find(Grid[] grids) {
+    long[] legal = new long[GamePiece.ROTATIONS * grids[0].getRows()];
+    long found = 0;
+    for (Grid grid : grids) {
+      for (int piece = 0; piece < GamePiece.PIECES; piece++) {
+        found += grid.findPlacements(GamePiece.createPiece(piece), legal);
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Play pieces one after another at the first place they fit, clearing any lines made
+   *
+   * @param grid  the grid, empty
+   * @param count number of pieces to play
+   * @return the number of lines cleared
+   */
+  private static long play(Grid grid, int count) {
+    int rows = grid.getRows();
+    long[] legal = new long[GamePiece.ROTATIONS * rows];
+    long[] mask = new long[rows];
+    long[] everything = new long[rows];
+    Arrays.fill(everything, -1L);
+    long lines = 0;
+
+    for (int i = 0; i < count; i++) {
+      int piece = i % GamePiece.PIECES;
+      if (grid.findPlacements(GamePiece.createPiece(piece), legal) == 0) {
+        grid.clear(everything);
+        continue;
+      }
+
+      int at = 0;
+      while (legal[at] == 0) {
+        at++;
+      }
+      var rotated = GamePiece.createPiece(piece, at / rows);
+      int x = Long.numberOfTrailingZeros(legal[at]);
+      int y = at % rows;
+      grid.playPiece(rotated, x, y);
+
+      int full = grid.findFullLines(rotated, x, y, mask);
+      if (full > 0) {
+        grid.clear(mask);
+        lines += full;
+      }
+    }
+    return lines;
+  }
+
+  /**
+   * Fill the gap of a full grid with a dot, clear the row and column it completes and fill them
+   * again leaving the next gap, moving the gap along each time
+   *
+   * @param grid  the grid, empty
+   * @param count number of times to clear
+   * @return the number of blocks cleared
+   */
+  private static long clear(Grid grid, int count) {
+    int cols = grid.getCols();
+    int rows = grid.getRows();
+    var dot = GamePiece.createPiece(DOT);
+    long[] mask = new long[rows];
+    long blocks = 0;
+
+    //Fill everything but the first gap
+    for (int y = 0; y < rows; y++) {
+      for (int x = 0; x < cols; x++) {
+        grid.set(x, y, 1);
+      }
+    }
+    grid.set(0, 0, 0);
+
+    for (int i = 0; i < count; i++) {
+      int gapX = i % cols;
+      int gapY = i / cols % rows;
+      grid.playPiece(dot, gapX, gapY);
+      grid.findFullLines(dot, gapX, gapY, mask);
+      blocks += Grid.countBlocks(mask);
+      grid.clear(mask);
+
+      //Fill the row and column again, leaving the next gap
+      for (int x = 0; x < cols; x++) {
+        grid.set(x, gapY, 1);
+      }
+      for (int y = 0; y < rows; y++) {
+        grid.set(gapX, y, 1);
+      }
+      grid.set((i + 1) % cols, (i + 1) / cols % rows, 0);
+    }
+    return blocks;
+  }
+
+  /**
+   * Make random grids with about half of the blocks filled
+   *
+   * @param cols  number of columns of the grid
+   * @param rows  number of rows of the grid
+   * @param count number of grids
+   * @param seed  seed of the grids
+   * @return the grids
+   */
+  private static Grid[] randomGrids(int cols, int rows, int count, long seed) {
+    var random = new SplittableRandom(seed);
+    Grid[] grids = new Grid[count];
+    for (int i = 0; i < count; i++) {
+      grids[i] = new Grid(cols, rows);
+      for (int y = 0; y < rows; y++) {
+        for (int x = 0; x < cols; x++) {
+          if (random.nextBoolean()) {
+            grids[i].set(x, y, 1 + random.nextInt(GamePiece.PIECES));
+          }
+        }
+      }
+    }
+    return grids;
+  }
+}
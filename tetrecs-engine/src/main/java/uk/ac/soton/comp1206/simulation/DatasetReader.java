@@ -0,0 +1,398 @@
+package uk.ac.soton.comp1206.simulation;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import uk.ac.soton.comp1206.ai.Move;
+
+/**
+ * A DatasetReader goes through the records of a file written by a DatasetWriter, one at a time. The
+ * file is mapped into memory rather than read, a window of up to a gigabyte at a time, and the
+ * getters read the fields of the current record straight from the mapping, so going through a file
+ * makes no objects and copies nothing. Compressed blocks are inflated into a buffer that is reused
+ * for every block.
+ * <p>
+ * A DatasetReader is not thread safe.
+ */
+public class DatasetReader implements AutoCloseable {
+
+  /**
+   * The most bytes mapped at a time
+   */
+  private static final long WINDOW = 1L << 30;
+
+  /**
+   * The file being read
+   */
+  private final FileChannel channel;
+
+  /**
+   * The size of the file
+   */
+  private final long size;
+
+  /**
+   * Whether blocks are compressed
+   */
+  private final boolean compressed;
+
+  /**
+   * Number of columns of the board
+   */
+  private final int cols;
+
+  /**
+   * Number of rows of the board
+   */
+  private final int rows;
+
+  /**
+   * Number of records in the file
+   */
+  private final long count;
+
+  /**
+   * The part of the file mapped
+   */
+  private MappedByteBuffer window;
+
+  /**
+   * The position in the file of the start of the window
+   */
+  private long windowStart;
+
+  /**
+   * Inflates compressed blocks, if compressed
+   */
+  private final Inflater inflater;
+
+  /**
+   * The records of the current compressed block, if compressed
+   */
+  private final ByteBuffer block;
+
+  /**
+   * The buffer holding the current record, the window or the inflated block
+   */
+  private ByteBuffer records;
+
+  /**
+   * The position in the file of the next block or record to map
+   */
+  private long next = DatasetWriter.HEADER_BYTES;
+
+  /**
+   * The position in the records buffer of the current record, or -1 before the first
+   */
+  private int at = -1;
+
+  /**
+   * The number of records gone through
+   */
+  private long read = 0;
+
+  /**
+   * Open a dataset file
+   *
+   * @param path the file to read
+   * @throws IOException if the file cannot be opened or is not a dataset
+   */
+  public DatasetReader(Path path) throws IOException {
+    channel = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      size = channel.size();
+      ByteBuffer header = ByteBuffer.allocate(DatasetWriter.HEADER_BYTES);
+      while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+        continue;
+      }
+      if (header.hasRemaining() || header.getInt(0) != DatasetWriter.MAGIC) {
+        throw new IOException("Not a dataset file: " + path);
+      }
+      compressed = header.get(Integer.BYTES) != 0;
+      cols = header.get(Integer.BYTES + 1);
+      rows = header.get(Integer.BYTES + 2);
+      count = header.getLong(Integer.BYTES + 4);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+
+    inflater = compressed ? new Inflater() : null;
+    block = compressed
+        ? ByteBuffer.allocateDirect(DatasetWriter.BLOCK_RECORDS * DatasetWriter.RECORD_BYTES)
+        : null;
+  }
+
+  /**
+   * Move on to the next record
+   *
+   * @return whether there is a next record
+   * @throws IOException if the file cannot be read
+   */
+  public boolean next() throws IOException {
+    if (read >= count) {
+      return false;
+    }
+    read++;
+
+    //Carry on in the current buffer if there is another record in it
+    if (records != null && at + 2 * DatasetWriter.RECORD_BYTES <= records.limit()) {
+      at += DatasetWriter.RECORD_BYTES;
+      return true;
+    }
+
+    if (!compressed) {
+      //Map records from the next one, as many whole records as fit in a window
+      long bytes = Math.min((size - next) / DatasetWriter.RECORD_BYTES,
+          WINDOW / DatasetWriter.RECORD_BYTES) * DatasetWriter.RECORD_BYTES;
+      records = map(next, bytes);
+      next += bytes;
+    } else {
+      //Inflate the next block
+      ByteBuffer frame = map(next, DatasetWriter.FRAME_BYTES);
+      int blockRecords = frame.getInt(frame.position());
+      int length = frame.getInt(frame.position() + Integer.BYTES);
+      ByteBuffer data = map(next + DatasetWriter.FRAME_BYTES, length);
+      next += DatasetWriter.FRAME_BYTES + length;
+
+      inflater.reset();
+      inflater.setInput(data);
+      block.clear().limit(blockRecords * DatasetWriter.RECORD_BYTES);
+      try {
+        while (block.hasRemaining() && !inflater.finished()) {
+          if (inflater.inflate(block) == 0 && inflater.needsInput()) {
+            break;
+          }
+        }
+      } catch (DataFormatException e) {
+        throw new IOException("Corrupt block at " + next, e);
+      }
+      if (block.hasRemaining()) {
+        throw new IOException("Short block at " + next);
+      }
+      records = block.flip();
+    }
+    if (records.remaining() < DatasetWriter.RECORD_BYTES) {
+      throw new IOException("Dataset ends before its last record");
+    }
+    at = records.position();
+    return true;
+  }
+
+  /**
+   * Get a part of the file, mapping a new window if it is not in the current one
+   *
+   * @param position position in the file
+   * @param length   number of bytes, at most a window
+   * @return a view of the bytes, starting at its position
+   * @throws IOException if the file cannot be mapped
+   */
+  private ByteBuffer map(long position, long length) throws IOException {
+    if (position + length > size) {
+      throw new IOException("Dataset ends before its last record");
+    }
+    if (window == null || position < windowStart
+        || position + length > windowStart + window.capacity()) {
+      windowStart = position;
+      window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+          Math.min(size - position, WINDOW));
+    }
+    return window.duplicate().position((int) (position - windowStart))
+        .limit((int) (position - windowStart + length));
+  }
+
+  /**
+   * Get the grid before the move of the current record
+   *
+   * @return the packed grid, bit y * cols + x for the block at x, y
+   */
+  public long getBoard() {
+    return records.getLong(at);
+  }
+
+  /**
+   * Get the number of the game the current record is from
+   *
+   * @return number of the game
+   */
+  public int getGame() {
+    return records.getInt(at + Long.BYTES);
+  }
+
+  /**
+   * Get the points earned by the move of the current record
+   *
+   * @return the points
+   */
+  public int getReward() {
+    return records.getInt(at + Long.BYTES + Integer.BYTES);
+  }
+
+  /**
+   * Get the number of the current piece of the current record
+   *
+   * @return number of the piece
+   */
+  public int getCurrentPiece() {
+    return records.get(at + Long.BYTES + 2 * Integer.BYTES);
+  }
+
+  /**
+   * Get the number of the following piece of the current record
+   *
+   * @return number of the piece
+   */
+  public int getFollowingPiece() {
+    return records.get(at + Long.BYTES + 2 * Integer.BYTES + 1);
+  }
+
+  /**
+   * Get the flags of the current record
+   *
+   * @return DatasetWriter.SWAP, DatasetWriter.GAVE_UP and DatasetWriter.GAME_END, or'ed together
+   */
+  public int getFlags() {
+    return records.get(at + Long.BYTES + 2 * Integer.BYTES + 2);
+  }
+
+  /**
+   * Check whether the current record is the last of its game
+   *
+   * @return whether the game ended after its move
+   */
+  public boolean isGameEnd() {
+    return (getFlags() & DatasetWriter.GAME_END) != 0;
+  }
+
+  /**
+   * Get the rotation the piece was played in by the current record
+   *
+   * @return the rotation
+   */
+  public int getRotation() {
+    return records.get(at + Long.BYTES + 2 * Integer.BYTES + 3);
+  }
+
+  /**
+   * Get the x location the piece was played at by the current record
+   *
+   * @return x location
+   */
+  public int getX() {
+    return records.get(at + Long.BYTES + 2 * Integer.BYTES + 4);
+  }
+
+  /**
+   * Get the y location the piece was played at by the current record
+   *
+   * @return y location
+   */
+  public int getY() {
+    return records.get(at + Long.BYTES + 2 * Integer.BYTES + 5);
+  }
+
+  /**
+   * Get the move of the current record
+   *
+   * @return the move, or null if the piece was left to time out
+   */
+  public Move getMove() {
+    int flags = getFlags();
+    if ((flags & DatasetWriter.GAVE_UP) != 0) {
+      return null;
+    }
+    return new Move((flags & DatasetWriter.SWAP) != 0, getRotation(), getX(), getY());
+  }
+
+  /**
+   * Get the number of records in the file
+   *
+   * @return number of records
+   */
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * Get the number of columns of the board
+   *
+   * @return number of columns
+   */
+  public int getCols() {
+    return cols;
+  }
+
+  /**
+   * Get the number of rows of the board
+   *
+   * @return number of rows
+   */
+  public int getRows() {
+    return rows;
+  }
+
+  /**
+   * Check whether the blocks of the file are compressed
+   *
+   * @return whether they are compressed
+   */
+  public boolean isCompressed() {
+    return compressed;
+  }
+
+  /**
+   * Close the file
+   *
+   * @throws IOException if it cannot be closed
+   */
+  @Override
+  public void close() throws IOException {
+    if (inflater != null) {
+      inflater.end();
+    }
+    channel.close();
+  }
+
+  /**
+   * Go through a dataset from the command line and print a summary of it
+   *
+   * @param args the dataset file
+   * @throws IOException if the file cannot be read
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length != 1) {
+      throw new IllegalArgumentException("Give the dataset file to read");
+    }
+
+    try (var reader = new DatasetReader(Path.of(args[0]))) {
+      long start = System.nanoTime();
+      long records = 0;
+      long reward = 0;
+      long gaveUp = 0;
+      long games = 0;
+      long blocks = 0;
+      while (reader.next()) {
+        records++;
+        reward += reader.getReward();
+        blocks += Long.bitCount(reader.getBoard());
+        if ((reader.getFlags() & DatasetWriter.GAVE_UP) != 0) {
+          gaveUp++;
+        }
+        if (reader.isGameEnd()) {
+          games++;
+        }
+      }
+      double seconds = (System.nanoTime() - start) / 1e9;
+      System.out.printf("%d records of %dx%d%s in %.2f s: %.0f records/s%n", records,
+          reader.getCols(), reader.getRows(), reader.isCompressed() ? ", compressed" : "",
+          seconds, records / seconds);
+      System.out.printf("%d games, reward mean %.2f, blocks mean %.2f, gave up %d%n", games,
+          (double) reward / records, (double) blocks / records, gaveUp);
+    }
+  }
+}
@@ -0,0 +1,296 @@
+package uk.ac.soton.comp1206.simulation;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.Deflater;
+import uk.ac.soton.comp1206.ai.Move;
+
+/**
+ * A DatasetWriter streams the positions of self-play games to a file, for training evaluators. Each
+ * position is a fixed size record of {@link #RECORD_BYTES} bytes, big endian:
+ * <ul>
+ *   <li>board (long): the grid before the move, bit y * cols + x for the block at x, y</li>
+ *   <li>game (int): the number of the game the position is from</li>
+ *   <li>reward (int): the points the move earned</li>
+ *   <li>current and following piece (byte each): the numbers of the pieces</li>
+ *   <li>flags (byte): {@link #SWAP} if the pieces were swapped first, {@link #GAVE_UP} if the
+ *   piece was left to time out instead of being played, {@link #GAME_END} if it is the last
+ *   position of its game</li>
+ *   <li>rotation, x and y (byte each): where the piece was played</li>
+ * </ul>
+ * The file starts with a header of {@link #HEADER_BYTES} bytes: the magic number, a byte that is 1
+ * if the blocks are compressed, the columns and rows of the board, a spare byte and the number of
+ * records (long), filled in when the writer is closed.
+ * <p>
+ * Records are gathered into Blocks, one for each thread, and a Block is written in one go when it
+ * fills up. Without compression the records follow each other straight after the header, so the
+ * file can be read in place. With compression each block is deflated and written as the number of
+ * records (int), the number of compressed bytes (int) and then the compressed bytes.
+ * <p>
+ * Blocks from different threads are written in whichever order they fill up, so the positions of
+ * different games can be mixed together. The positions of one game are always in order, and the
+ * game number and end flag split them up again. The writer is thread safe, but each Block must
+ * only be used by one thread.
+ */
+public class DatasetWriter implements AutoCloseable {
+
+  /**
+   * The magic number at the start of a dataset file
+   */
+  public static final int MAGIC = 0x54445332;
+
+  /**
+   * The size in bytes of the header
+   */
+  public static final int HEADER_BYTES = Integer.BYTES + 4 * Byte.BYTES + Long.BYTES;
+
+  /**
+   * The size in bytes of one record
+   */
+  public static final int RECORD_BYTES = Long.BYTES + 2 * Integer.BYTES + 6 * Byte.BYTES;
+
+  /**
+   * The size in bytes of the start of a compressed block
+   */
+  public static final int FRAME_BYTES = 2 * Integer.BYTES;
+
+  /**
+   * Flag of a record where the pieces were swapped before playing
+   */
+  public static final int SWAP = 1;
+
+  /**
+   * Flag of a record where the piece was left to time out
+   */
+  public static final int GAVE_UP = 2;
+
+  /**
+   * Flag of the last record of a game, because the game ended or reached the most moves
+   */
+  public static final int GAME_END = 4;
+
+  /**
+   * The number of records in a block
+   */
+  public static final int BLOCK_RECORDS = 4096;
+
+  /**
+   * The file being written
+   */
+  private final FileChannel channel;
+
+  /**
+   * Whether blocks are compressed
+   */
+  private final boolean compressed;
+
+  /**
+   * The number of records written
+   */
+  private long count = 0;
+
+  /**
+   * Create a new DatasetWriter, replacing any file already there
+   *
+   * @param path       the file to write
+   * @param cols       number of columns of the board
+   * @param rows       number of rows of the board
+   * @param compressed whether to compress each block
+   * @throws IOException if the file cannot be opened
+   */
+  public DatasetWriter(Path path, int cols, int rows, boolean compressed) throws IOException {
+    if (cols < 1 || rows < 1 || cols * rows > Long.SIZE) {
+      throw new IllegalArgumentException("Board must have at most " + Long.SIZE + " blocks");
+    }
+    this.compressed = compressed;
+    this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING);
+
+    ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+    header.putInt(MAGIC);
+    header.put((byte) (compressed ? 1 : 0));
+    header.put((byte) cols);
+    header.put((byte) rows);
+    header.put((byte) 0);
+    header.putLong(0);
+    writeFully(header.flip());
+  }
+
+  /**
+   * Make a new Block to gather the records of one thread
+   *
+   * @return the block
+   */
+  public Block newBlock() {
+    return new Block();
+  }
+
+  /**
+   * Write the records of a block
+   *
+   * @param data    the records, or the frame of the compressed records
+   * @param records number of records
+   * @throws IOException if the block cannot be written
+   */
+  private synchronized void write(ByteBuffer data, int records) throws IOException {
+    writeFully(data);
+    count += records;
+  }
+
+  /**
+   * Write all of a buffer at the end of the file
+   *
+   * @param buffer data to write
+   * @throws IOException if it cannot be written
+   */
+  private void writeFully(ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  /**
+   * Get the number of records written so far
+   *
+   * @return number of records
+   */
+  public synchronized long getCount() {
+    return count;
+  }
+
+  /**
+   * Fill in the number of records and close the file. Records in blocks that have not been flushed
+   * or closed are lost
+   *
+   * @throws IOException if the file cannot be written
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    try {
+      ByteBuffer total = ByteBuffer.allocate(Long.BYTES).putLong(count).flip();
+      long position = HEADER_BYTES - Long.BYTES;
+      while (total.hasRemaining()) {
+        position += channel.write(total, position);
+      }
+    } finally {
+      channel.close();
+    }
+  }
+
+  /**
+   * A Block gathers records until it is full, then writes them all at once. Compression is done
+   * by the thread that fills the block, so only the write itself waits for other threads
+   */
+  public class Block implements AutoCloseable {
+
+    /**
+     * The records gathered
+     */
+    private final ByteBuffer records = ByteBuffer.allocateDirect(BLOCK_RECORDS * RECORD_BYTES);
+
+    /**
+     * Compresses the records, if compressing
+     */
+    private final Deflater deflater = compressed ? new Deflater(Deflater.BEST_SPEED) : null;
+
+    /**
+     * The compressed records, if compressing
+     */
+    private ByteBuffer frame = compressed
+        ? ByteBuffer.allocateDirect(FRAME_BYTES + BLOCK_RECORDS * RECORD_BYTES) : null;
+
+    /**
+     * Create a new Block
+     */
+    private Block() {
+    }
+
+    /**
+     * Add the record of a move, writing the block if it is full
+     *
+     * @param board     the grid before the move, packed
+     * @param game      number of the game
+     * @param current   number of the current piece
+     * @param following number of the following piece
+     * @param move      the move made, or null if the piece was left to time out
+     * @param reward    the points the move earned
+     * @param gameEnd   whether this is the last move of the game
+     * @throws IOException if the block cannot be written
+     */
+    public void add(long board, int game, int current, int following, Move move, int reward,
+        boolean gameEnd) throws IOException {
+      int end = gameEnd ? GAME_END : 0;
+      records.putLong(board);
+      records.putInt(game);
+      records.putInt(reward);
+      records.put((byte) current);
+      records.put((byte) following);
+      if (move == null) {
+        records.put((byte) (GAVE_UP | end));
+        records.put((byte) 0).put((byte) 0).put((byte) 0);
+      } else {
+        records.put((byte) ((move.isSwap() ? SWAP : 0) | end));
+        records.put((byte) move.getRotation());
+        records.put((byte) move.getX());
+        records.put((byte) move.getY());
+      }
+
+      if (!records.hasRemaining()) {
+        flush();
+      }
+    }
+
+    /**
+     * Write the records gathered so far
+     *
+     * @throws IOException if the block cannot be written
+     */
+    public void flush() throws IOException {
+      int count = records.position() / RECORD_BYTES;
+      if (count == 0) {
+        return;
+      }
+      records.flip();
+
+      if (!compressed) {
+        write(records, count);
+      } else {
+        //Deflate the records after the start of the frame, growing the frame if they do not fit
+        deflater.reset();
+        deflater.setInput(records);
+        deflater.finish();
+        frame.clear().position(FRAME_BYTES);
+        while (!deflater.finished()) {
+          if (!frame.hasRemaining()) {
+            var bigger = ByteBuffer.allocateDirect(frame.capacity() * 2);
+            frame = bigger.put(frame.flip());
+          }
+          deflater.deflate(frame);
+        }
+        frame.putInt(0, count);
+        frame.putInt(Integer.BYTES, frame.position() - FRAME_BYTES);
+        write(frame.flip(), count);
+      }
+      records.clear();
+    }
+
+    /**
+     * Write the records gathered so far and free the compressor
+     *
+     * @throws IOException if the block cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+      try {
+        flush();
+      } finally {
+        if (deflater != null) {
+          deflater.end();
+        }
+      }
+    }
+  }
+}
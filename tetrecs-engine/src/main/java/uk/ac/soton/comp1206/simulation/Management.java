@@ -0,0 +1,120 @@
+package uk.ac.soton.comp1206.simulation;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Management reads the garbage collection, CPU time and allocation counters the simulators and
+ * benchmarks report. They come from the java.management module, and the allocation counts from
+ * jdk.management, which the engine only requires at compile time, so a game or UI using the engine
+ * does not need them at run time. Check {@link #PRESENT} or {@link #JDK_PRESENT} before calling
+ * anything here and leave the counters out without it. Running from the class path has both, on
+ * the module path run with --add-modules java.management or jdk.management.
+ * <p>
+ * Nothing else in the engine refers to java.lang.management or com.sun.management, so their
+ * classes are never linked when the modules are not there.
+ */
+final class Management {
+
+  /**
+   * Whether the java.management module is present
+   */
+  static final boolean PRESENT = ModuleLayer.boot().findModule("java.management").isPresent();
+
+  /**
+   * Whether the jdk.management module is present, which brings java.management with it
+   */
+  static final boolean JDK_PRESENT = ModuleLayer.boot().findModule("jdk.management").isPresent();
+
+  /**
+   * How to include the counters when the module is not present
+   */
+  static final String MISSING = "not counted, run with --add-modules java.management";
+
+  /**
+   * Not made
+   */
+  private Management() {
+  }
+
+  /**
+   * Get the number of garbage collections so far
+   *
+   * @return number of collections
+   */
+  static long gcCount() {
+    return ManagementFactory.getGarbageCollectorMXBeans().stream()
+        .mapToLong(GarbageCollectorMXBean::getCollectionCount).sum();
+  }
+
+  /**
+   * Get the time spent in garbage collection so far
+   *
+   * @return time in milliseconds
+   */
+  static long gcMillis() {
+    return ManagementFactory.getGarbageCollectorMXBeans().stream()
+        .mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+  }
+
+  /**
+   * Get the CPU time used so far by the current thread
+   *
+   * @return CPU time in nanoseconds
+   */
+  static long currentThreadCpuTime() {
+    return ManagementFactory.getThreadMXBean().getCurrentThreadCpuTime();
+  }
+
+  /**
+   * Get the CPU time used so far by the threads whose names start with the given name
+   *
+   * @param prefix start of the names
+   * @return CPU time in nanoseconds
+   */
+  static long threadCpuTime(String prefix) {
+    var threads = ManagementFactory.getThreadMXBean();
+    long total = 0;
+    for (var info : threads.getThreadInfo(threads.getAllThreadIds())) {
+      if (info != null && info.getThreadName().startsWith(prefix)) {
+        total += Math.max(0, threads.getThreadCpuTime(info.getThreadId()));
+      }
+    }
+    return total;
+  }
+
+  /**
+   * Start counting the bytes each thread allocates on the heap, if the JVM can
+   *
+   * @return true if it is counting them
+   */
+  static boolean countAllocation() {
+    if (!Threads.BEAN.isThreadAllocatedMemorySupported()) {
+      return false;
+    }
+    Threads.BEAN.setThreadAllocatedMemoryEnabled(true);
+    return true;
+  }
+
+  /**
+   * Get the number of bytes the current thread has allocated on the heap so far. Allocates nothing
+   * itself, so it can be read around the code being measured
+   *
+   * @return number of bytes
+   */
+  static long allocatedBytes() {
+    return Threads.BEAN.getCurrentThreadAllocatedBytes();
+  }
+
+  /**
+   * Holds the thread counters of jdk.management, so they are only linked when first used
+   */
+  private static final class Threads {
+
+    /**
+     * The thread counters, with the allocation counts
+     */
+    static final com.sun.management.ThreadMXBean BEAN =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+  }
+}
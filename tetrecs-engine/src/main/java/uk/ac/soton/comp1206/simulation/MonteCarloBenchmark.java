@@ -0,0 +1,92 @@
+package uk.ac.soton.comp1206.simulation;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import uk.ac.soton.comp1206.ai.MonteCarloPlayer;
+
+/**
+ * The MonteCarloBenchmark measures how the MonteCarloPlayer scales with threads. It plays the same
+ * games once for each number of threads, one game at a time so every thread works on the search,
+ * and reports the random continuations played per second along with the distribution of scores.
+ * <p>
+ * The iterations per move stay the same for every number of threads and are shared between the
+ * trees, so the scores show what splitting the search into more trees costs or gains.
+ */
+public class MonteCarloBenchmark {
+
+  /**
+   * Run the benchmark from the command line. Options are given as --name=value:
+   * <ul>
+   *   <li>games: number of games for each number of threads (default 20)</li>
+   *   <li>seed: seed of the run (default 1)</li>
+   *   <li>iterations: iterations per move (default 2000)</li>
+   *   <li>threads: most threads to try, going up in powers of two (default all cores)</li>
+   *   <li>size: board size as COLSxROWS (default 5x5)</li>
+   *   <li>max-moves: most moves a game can last (default 200)</li>
+   * </ul>
+   *
+   * @param args command line options
+   * @throws IOException never, as no results file is written
+   */
+  public static void main(String[] args) throws IOException {
+    int games = 20;
+    long seed = 1;
+    int iterations = MonteCarloPlayer.DEFAULT_ITERATIONS;
+    int maxThreads = Runtime.getRuntime().availableProcessors();
+    int cols = 5;
+    int rows = 5;
+    int maxMoves = 200;
+
+    for (String arg : args) {
+      String[] option = arg.replaceFirst("^--", "").split("=", 2);
+      if (option.length != 2) {
+        throw new IllegalArgumentException("Options are given as --name=value: " + arg);
+      }
+      switch (option[0]) {
+        case "games" -> games = Integer.parseInt(option[1]);
+        case "seed" -> seed = Long.parseLong(option[1]);
+        case "iterations" -> iterations = Integer.parseInt(option[1]);
+        case "threads" -> maxThreads = Integer.parseInt(option[1]);
+        case "size" -> {
+          String[] size = option[1].split("x");
+          cols = Integer.parseInt(size[0]);
+          rows = Integer.parseInt(size[1]);
+        }
+        case "max-moves" -> maxMoves = Integer.parseInt(option[1]);
+        default -> throw new IllegalArgumentException("No such option: " + option[0]);
+      }
+    }
+
+    //Powers of two up to the most threads, and the most threads itself
+    List<Integer> counts = new ArrayList<>();
+    for (int threads = 1; threads < maxThreads; threads *= 2) {
+      counts.add(threads);
+    }
+    counts.add(maxThreads);
+
+    for (int threads : counts) {
+      var pool = new ForkJoinPool(threads);
+      var players = new ConcurrentLinkedQueue<MonteCarloPlayer>();
+      int trees = threads;
+      int perMove = iterations;
+      var simulator = new Simulator(cols, rows, games, seed, 1, maxMoves, gameSeed -> {
+        var player = new MonteCarloPlayer(gameSeed, perMove, trees, pool);
+        players.add(player);
+        return player;
+      });
+
+      long start = System.nanoTime();
+      simulator.run((Path) null);
+      double seconds = (System.nanoTime() - start) / 1e9;
+      pool.shutdown();
+
+      long rollouts = players.stream().mapToLong(MonteCarloPlayer::getRollouts).sum();
+      System.out.printf("%d threads: %.0f rollouts/s%n", threads, rollouts / seconds);
+      simulator.printSummary(seconds);
+    }
+  }
+}
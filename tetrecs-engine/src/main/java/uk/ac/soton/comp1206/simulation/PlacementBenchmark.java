@@ -0,0 +1,149 @@
+package uk.ac.soton.comp1206.simulation;
+
+import java.util.SplittableRandom;
+import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.game.Grid;
+
+/**
+ * The PlacementBenchmark compares finding every place a piece can be played with
+ * Grid.findPlacements, which does all the positions of a rotation a row at a time, against asking
+ * Grid.canPlayPiece about every position of every rotation in turn. Both are run for every piece on
+ * random grids about half full. It checks both find the same places, then reports the time taken
+ * per piece.
+ */
+public class PlacementBenchmark {
+
+  /**
+   * Run the benchmark from the command line. Options are given as --name=value:
+   * <ul>
+   *   <li>size: grid size as COLSxROWS, at most 64 columns (default 5x5)</li>
+   *   <li>grids: number of random grids (default 10000)</li>
+   *   <li>rounds: number of times to go over the grids with each way (default 20)</li>
+   *   <li>seed: seed of the grids (default 1)</li>
+   * </ul>
+   *
+   * @param args command line options
+   */
+  public static void main(String[] args) {
+    int cols = 5;
+    int rows = 5;
+    int count = 10000;
+    int rounds = 20;
+    long seed = 1;
+
+    for (String arg : args) {
+      String[] option = arg.replaceFirst("^--", "").split("=", 2);
+      if (option.length != 2) {
+        throw new IllegalArgumentException("Options are given as --name=value: " + arg);
+      }
+      switch (option[0]) {
+        case "size" -> {
+          String[] size = option[1].split("x");
+          cols = Integer.parseInt(size[0]);
+          rows = Integer.parseInt(size[1]);
+        }
+        case "grids" -> count = Integer.parseInt(option[1]);
+        case "rounds" -> rounds = Integer.parseInt(option[1]);
+        case "seed" -> seed = Long.parseLong(option[1]);
+        default -> throw new IllegalArgumentException("No such option: " + option[0]);
+      }
+    }
+
+    Grid[] grids = randomGrids(cols, rows, count, seed);
+    GamePiece[] pieces = new GamePiece[GamePiece.PIECES];
+    for (int piece = 0; piece < GamePiece.PIECES; piece++) {
+      pieces[piece] = GamePiece.createPiece(piece);
+    }
+    long[] legal = new long[GamePiece.ROTATIONS * rows];
+    System.out.printf("%dx%d: %d pieces on %d grids, %d positions each%n", cols, rows,
+        pieces.length, count, GamePiece.ROTATIONS * cols * rows);
+
+    //Both ways must find the same places
+    for (Grid grid : grids) {
+      for (GamePiece piece : pieces) {
+        grid.findPlacements(piece, legal);
+        for (int rotation = 0; rotation < GamePiece.ROTATIONS; rotation++) {
+          var rotated = GamePiece.createPiece(piece.getPiece(), rotation);
+          for (int y = 0; y < rows; y++) {
+            for (int x = 0; x < cols; x++) {
+              boolean found = (legal[rotation * rows + y] & 1L << x) != 0;
+              if (found != grid.canPlayPiece(rotated, x, y)) {
+                throw new IllegalStateException("Placements differ for " + piece + " in rotation "
+                    + rotation + " at " + x + "," + y);
+              }
+            }
+          }
+        }
+      }
+    }
+
+    //Go over the grids once untimed to warm up, then time the rest. The places found are added up
+    //and printed so the work cannot be skipped
+    for (boolean bulk : new boolean[]{true, false}) {
+      long start = 0;
+      long found = 0;
+      for (int round = 0; round <= rounds; round++) {
+        if (round == 1) {
+          start = System.nanoTime();
+          found = 0;
+        }
+        for (Grid grid : grids) {
+          for (GamePiece piece : pieces) {
+            found += bulk ? grid.findPlacements(piece, legal) : canPlayEverywhere(grid, piece);
+          }
+        }
+      }
+      double nanos = (double) (System.nanoTime() - start) / rounds / grids.length / pieces.length;
+      System.out.printf("%-14s %8.1f ns per piece, %.2f places found per piece%n",
+          bulk ? "findPlacements" : "canPlayPiece", nanos,
+          (double) found / rounds / grids.length / pieces.length);
+    }
+  }
+
+  /**
+   * Count the places a piece can be played by asking about every position of every rotation
+   *
+   * @param grid  the grid
+   * @param piece the piece, in any rotation
+   * @return the number of places it can be played
+   */
+  private static int canPlayEverywhere(Grid grid, GamePiece piece) {
+    int count = 0;
+    for (int rotation = 0; rotation < GamePiece.ROTATIONS; rotation++) {
+      var rotated = GamePiece.createPiece(piece.getPiece(), rotation);
+      for (int y = 0; y < grid.getRows(); y++) {
+        for (int x = 0; x < grid.getCols(); x++) {
+          if (grid.canPlayPiece(rotated, x, y)) {
+            count++;
+          }
+        }
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Make random grids with about half of the blocks filled
+   *
+   * @param cols  number of columns of the grid
+   * @param rows  number of rows of the grid
+   * @param count number of grids
+   * @param seed  seed of the grids
+   * @return the grids
+   */
+  private static Grid[] randomGrids(int cols, int rows, int count, long seed) {
+    var random = new SplittableRandom(seed);
+    Grid[] grids = new Grid[count];
+    for (int i = 0; i < count; i++) {
+      grids[i] = new Grid(cols, rows);
+      for (int y = 0; y < rows; y++) {
+        for (int x = 0; x < cols; x++) {
+          if (random.nextBoolean()) {
+            grids[i].set(x, y, 1 + random.nextInt(GamePiece.PIECES));
+          }
+        }
+      }
+    }
+    return grids;
+  }
+}
@@ -0,0 +1,276 @@
+package uk.ac.soton.comp1206.simulation;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.ai.BatchEvaluator;
+import uk.ac.soton.comp1206.ai.WeightedEvaluator;
+import uk.ac.soton.comp1206.game.BoardPool;
+import uk.ac.soton.comp1206.game.Game;
+import uk.ac.soton.comp1206.game.GamePiece;
+
+/**
+ * The PoolSimulator plays a whole population of games at once in a BoardPool, for tuning the
+ * weights of the greedy player on far more games than fit on the heap as Game objects. Every game
+ * is kept in the pool from start to end, and each round makes one move in every game still being
+ * played, spread over a fork/join pool.
+ * <p>
+ * Each move tries every placement of the current and following piece with a BatchEvaluator and
+ * picks the one with the most points plus the weighted score of the grid left behind, swapping
+ * first if the following piece is better. When neither piece fits the current piece times out.
+ * The evaluator is the plain one unless run with -Dtetrecs.vector=true, see BatchEvaluator.
+ */
+public class PoolSimulator {
+
+  private static final Logger logger = LogManager.getLogger(PoolSimulator.class);
+
+  /**
+   * The number of games moved by each task in a round
+   */
+  private static final int CHUNK = 1 << 14;
+
+  /**
+   * The games being played
+   */
+  private final BoardPool pool;
+
+  /**
+   * Weights of the features of the grid left behind by each move
+   */
+  private final WeightedEvaluator weights;
+
+  /**
+   * Number of threads to play on
+   */
+  private final int threads;
+
+  /**
+   * Most moves a game can last before it is stopped
+   */
+  private final int maxMoves;
+
+  /**
+   * The evaluator and results of each thread
+   */
+  private final ThreadLocal<Scratch> scratch;
+
+  /**
+   * Create a new PoolSimulator
+   *
+   * @param pool     the games to play
+   * @param weights  weights of the features of the grid left behind by each move
+   * @param threads  number of threads to play on
+   * @param maxMoves most moves a game can last before it is stopped
+   */
+  public PoolSimulator(BoardPool pool, WeightedEvaluator weights, int threads, int maxMoves) {
+    this.pool = pool;
+    this.weights = weights;
+    this.threads = threads;
+    this.maxMoves = maxMoves;
+    this.scratch = ThreadLocal.withInitial(Scratch::new);
+  }
+
+  /**
+   * Start every game in the pool, each with its own seed worked out from the seed of the run
+   *
+   * @param seed seed of the run
+   */
+  public void reset(long seed) {
+    var random = new SplittableRandom(seed);
+    for (int game = 0; game < pool.getCapacity(); game++) {
+      pool.reset(game, random.nextLong());
+    }
+  }
+
+  /**
+   * Play every game until it ends or lasts too long
+   *
+   * @return number of rounds played
+   * @throws InterruptedException if interrupted while playing
+   */
+  public int run() throws InterruptedException {
+    int chunks = (pool.getCapacity() + CHUNK - 1) / CHUNK;
+    var playing = new AtomicInteger();
+    int rounds = 0;
+
+    ForkJoinPool workers = new ForkJoinPool(threads);
+    try {
+      do {
+        playing.set(0);
+        workers.submit(() -> IntStream.range(0, chunks).parallel()
+            .forEach(chunk -> playing.addAndGet(moveChunk(chunk)))).get();
+        rounds++;
+        logger.debug("Round {}: {} games still playing", rounds, playing.get());
+      } while (playing.get() > 0 && rounds < maxMoves);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Simulation failed", e.getCause());
+    } finally {
+      workers.shutdown();
+    }
+    return rounds;
+  }
+
+  /**
+   * Make one move in each game of a chunk that is still being played
+   *
+   * @param chunk number of the chunk
+   * @return number of games in the chunk still being played afterwards
+   */
+  private int moveChunk(int chunk) {
+    var local = scratch.get();
+    int last = Math.min((chunk + 1) * CHUNK, pool.getCapacity());
+    int playing = 0;
+
+    for (int game = chunk * CHUNK; game < last; game++) {
+      if (pool.isOver(game)) {
+        continue;
+      }
+      move(game, local);
+      if (!pool.isOver(game)) {
+        playing++;
+      }
+    }
+    return playing;
+  }
+
+  /**
+   * Make the best move by the weights in a game
+   *
+   * @param game  number of the game
+   * @param local the evaluator and results of this thread
+   */
+  private void move(int game, Scratch local) {
+    long board = pool.getBoard(game);
+    int multiplier = pool.getMultiplier(game);
+
+    long best = 0;
+    boolean swap = false;
+    double bestValue = Double.NEGATIVE_INFINITY;
+    for (int side = 0; side < 2; side++) {
+      int piece = side == 0 ? pool.getCurrentPiece(game) : pool.getFollowingPiece(game);
+      long[] placements = pool.getPlacements(piece);
+      var results = local.results;
+      local.evaluator.evaluate(board, placements, placements.length, results);
+
+      for (int i = 0; i < placements.length; i++) {
+        double value = results.scores[i]
+            + Game.lineScore(results.lines[i], results.blocks[i], multiplier);
+        if (value > bestValue) {
+          bestValue = value;
+          best = placements[i];
+          swap = side == 1;
+        }
+      }
+    }
+
+    if (bestValue == Double.NEGATIVE_INFINITY) {
+      pool.timeOut(game);
+      return;
+    }
+    if (swap) {
+      pool.swap(game);
+    }
+    pool.play(game, best);
+  }
+
+  /**
+   * The BatchEvaluator of one thread, with room for the results of any piece
+   */
+  private class Scratch {
+
+    private final BatchEvaluator evaluator =
+        BatchEvaluator.create(pool.getCols(), pool.getRows(), weights);
+
+    private final BatchEvaluator.Results results = new BatchEvaluator.Results(
+        IntStream.range(0, GamePiece.PIECES).map(piece -> pool.getPlacements(piece).length)
+            .max().orElse(0));
+  }
+
+  /**
+   * Run a population from the command line. Options are given as --name=value:
+   * <ul>
+   *   <li>games: number of games played at once (default 1000000)</li>
+   *   <li>memory: native memory budget in MB, sets games instead if given</li>
+   *   <li>seed: seed of the run (default 1)</li>
+   *   <li>weights: weights of filled, edges and holes as F,E,H (default 1,1,4)</li>
+   *   <li>threads: number of threads (default all cores)</li>
+   *   <li>size: board size as COLSxROWS, at most 64 blocks (default 5x5)</li>
+   *   <li>max-moves: most moves a game can last (default 1000)</li>
+   * </ul>
+   *
+   * @param args command line options
+   * @throws InterruptedException if interrupted while playing
+   */
+  public static void main(String[] args) throws InterruptedException {
+    int games = 1_000_000;
+    long seed = 1;
+    var weights = WeightedEvaluator.DEFAULT;
+    int threads = Runtime.getRuntime().availableProcessors();
+    int cols = 5;
+    int rows = 5;
+    int maxMoves = 1000;
+
+    for (String arg : args) {
+      String[] option = arg.replaceFirst("^--", "").split("=", 2);
+      if (option.length != 2) {
+        throw new IllegalArgumentException("Options are given as --name=value: " + arg);
+      }
+      switch (option[0]) {
+        case "games" -> games = Integer.parseInt(option[1]);
+        case "memory" -> games = BoardPool.capacityFor(Integer.parseInt(option[1]));
+        case "seed" -> seed = Long.parseLong(option[1]);
+        case "weights" -> {
+          double[] w = Arrays.stream(option[1].split(",")).mapToDouble(Double::parseDouble)
+              .toArray();
+          weights = new WeightedEvaluator(w[0], w[1], w[2]);
+        }
+        case "threads" -> threads = Integer.parseInt(option[1]);
+        case "size" -> {
+          String[] size = option[1].split("x");
+          cols = Integer.parseInt(size[0]);
+          rows = Integer.parseInt(size[1]);
+        }
+        case "max-moves" -> maxMoves = Integer.parseInt(option[1]);
+        default -> throw new IllegalArgumentException("No such option: " + option[0]);
+      }
+    }
+
+    var pool = new BoardPool(cols, rows, games);
+    var simulator = new PoolSimulator(pool, weights, threads, maxMoves);
+    long gcCount = Management.PRESENT ? Management.gcCount() : 0;
+    long gcMillis = Management.PRESENT ? Management.gcMillis() : 0;
+    long start = System.nanoTime();
+    simulator.reset(seed);
+    int rounds = simulator.run();
+    double seconds = (System.nanoTime() - start) / 1e9;
+
+    //Sum up the results straight from the pool
+    long score = 0;
+    long moves = 0;
+    int best = 0;
+    for (int game = 0; game < games; game++) {
+      score += pool.getScore(game);
+      moves += pool.getMoves(game);
+      best = Math.max(best, pool.getScore(game));
+    }
+
+    var runtime = Runtime.getRuntime();
+    System.out.printf("%d games of %dx%d in %d rounds, %.2f s: %.0f moves/s%n", games, cols, rows,
+        rounds, seconds, moves / seconds);
+    System.out.printf("Pool %.1f MB off heap, heap in use %.1f MB%n", pool.getBytes() / 1048576.0,
+        (runtime.totalMemory() - runtime.freeMemory()) / 1048576.0);
+    if (Management.PRESENT) {
+      System.out.printf("GC: %d collections, %d ms%n", Management.gcCount() - gcCount,
+          Management.gcMillis() - gcMillis);
+    } else {
+      System.out.println("GC: " + Management.MISSING);
+    }
+    System.out.printf("score mean %.1f max %d, moves mean %.1f%n", (double) score / games, best,
+        (double) moves / games);
+  }
+}
@@ -0,0 +1,299 @@
+package uk.ac.soton.comp1206.simulation;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.ai.ValueTable;
+import uk.ac.soton.comp1206.game.Game;
+import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.game.Grid;
+
+/**
+ * The RetrogradeSolver works out the value of every possible grid of a small board: the points
+ * expected over the next few pieces, placing each piece as well as possible once it is known. Each
+ * piece is equally likely, and a piece that does not fit anywhere ends the game.
+ * <p>
+ * The values are worked out one piece at a time. The values looking one piece ahead come from the
+ * values looking no pieces ahead (all zero), the values looking two pieces ahead from those, and so
+ * on. Each pass goes over every grid in parallel. Grids are packed into ints, bit y * cols + x for
+ * the block at x, y, so a 5x5 board has 2^25 grids, and each pass keeps two floats per grid.
+ * <p>
+ * The multiplier and the swap with the following piece are left out, as they would multiply the
+ * number of states. The result is saved as a ValueTable.
+ */
+public class RetrogradeSolver {
+
+  private static final Logger logger = LogManager.getLogger(RetrogradeSolver.class);
+
+  /**
+   * The number of grids worked out by each task
+   */
+  private static final int CHUNK = 1 << 16;
+
+  /**
+   * Number of columns of the board
+   */
+  private final int cols;
+
+  /**
+   * Number of rows of the board
+   */
+  private final int rows;
+
+  /**
+   * Number of threads to solve on
+   */
+  private final int threads;
+
+  /**
+   * The blocks covered by each placement of each piece, packed like a grid. A placement that covers
+   * the same blocks as another, from a different rotation, is only kept once
+   */
+  private final int[][] placements;
+
+  /**
+   * The blocks of each full line each placement of each piece crosses, packed like a grid
+   */
+  private final int[][][] crossed;
+
+  /**
+   * Create a new RetrogradeSolver
+   *
+   * @param cols    number of columns of the board
+   * @param rows    number of rows of the board
+   * @param threads number of threads to solve on
+   */
+  public RetrogradeSolver(int cols, int rows, int threads) {
+    if (cols < 1 || rows < 1 || cols * rows > ValueTable.MAX_CELLS) {
+      throw new IllegalArgumentException(
+          "Board must have at most " + ValueTable.MAX_CELLS + " blocks");
+    }
+    this.cols = cols;
+    this.rows = rows;
+    this.threads = threads;
+
+    placements = new int[GamePiece.PIECES][];
+    crossed = new int[GamePiece.PIECES][][];
+    var empty = new Grid(cols, rows);
+    long[] legal = new long[GamePiece.ROTATIONS * rows];
+    for (int piece = 0; piece < GamePiece.PIECES; piece++) {
+      var shape = GamePiece.createPiece(piece);
+      int count = empty.findPlacements(shape, legal);
+
+      //Pack every placement on the empty board
+      int[] masks = new int[count];
+      int found = 0;
+      for (int i = 0; i < legal.length; i++) {
+        var rotated = GamePiece.createPiece(piece, i / rows);
+        for (long row = legal[i]; row != 0; row &= row - 1) {
+          masks[found++] = pack(rotated, Long.numberOfTrailingZeros(row), i % rows);
+        }
+      }
+      placements[piece] = Arrays.stream(masks).distinct().toArray();
+
+      //The lines each placement crosses
+      crossed[piece] = new int[placements[piece].length][];
+      for (int i = 0; i < placements[piece].length; i++) {
+        crossed[piece][i] = linesCrossed(placements[piece][i]);
+      }
+    }
+  }
+
+  /**
+   * Pack the blocks a piece covers when played at a place
+   *
+   * @param piece  the piece
+   * @param placeX x location the piece is played at
+   * @param placeY y location the piece is played at
+   * @return the blocks covered
+   */
+  private int pack(GamePiece piece, int placeX, int placeY) {
+    int mask = 0;
+    for (int y = piece.getMinY(); y <= piece.getMaxY(); y++) {
+      mask |= (int) piece.getRowMask(y, placeX - 1) << ((placeY - 1 + y) * cols);
+    }
+    return mask;
+  }
+
+  /**
+   * Find the full lines a set of blocks crosses
+   *
+   * @param mask the blocks
+   * @return the blocks of each line crossed
+   */
+  private int[] linesCrossed(int mask) {
+    return IntStream.concat(
+            IntStream.range(0, rows).map(this::rowLine),
+            IntStream.range(0, cols).map(this::columnLine))
+        .filter(line -> (line & mask) != 0)
+        .toArray();
+  }
+
+  /**
+   * Get the blocks of a row
+   *
+   * @param y the row
+   * @return the blocks of the row
+   */
+  private int rowLine(int y) {
+    return ((1 << cols) - 1) << (y * cols);
+  }
+
+  /**
+   * Get the blocks of a column
+   *
+   * @param x the column
+   * @return the blocks of the column
+   */
+  private int columnLine(int x) {
+    int line = 0;
+    for (int y = 0; y < rows; y++) {
+      line |= 1 << (y * cols + x);
+    }
+    return line;
+  }
+
+  /**
+   * Work out the value of every grid
+   *
+   * @param horizon number of pieces to look ahead
+   * @return the value of each grid
+   * @throws InterruptedException if interrupted while solving
+   */
+  public float[] solve(int horizon) throws InterruptedException {
+    int grids = 1 << (cols * rows);
+    int chunks = (grids + CHUNK - 1) / CHUNK;
+    float[] previous = new float[grids];
+    float[] next = new float[grids];
+
+    ForkJoinPool pool = new ForkJoinPool(threads);
+    try {
+      for (int pass = 1; pass <= horizon; pass++) {
+        long start = System.nanoTime();
+        float[] from = previous;
+        float[] to = next;
+        pool.submit(() -> IntStream.range(0, chunks).parallel().forEach(chunk -> {
+          int last = Math.min((chunk + 1) * CHUNK, grids);
+          for (int board = chunk * CHUNK; board < last; board++) {
+            to[board] = value(board, from);
+          }
+        })).get();
+
+        previous = to;
+        next = from;
+        logger.info("Pass {} of {} took {} ms", pass, horizon,
+            (System.nanoTime() - start) / 1_000_000);
+      }
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Solving failed", e.getCause());
+    } finally {
+      pool.shutdown();
+    }
+    return previous;
+  }
+
+  /**
+   * Work out the value of a grid from the values of the grids one piece later
+   *
+   * @param board    the packed grid
+   * @param previous the value of each grid one piece later
+   * @return the points expected from the grid
+   */
+  private float value(int board, float[] previous) {
+    double total = 0;
+    for (int piece = 0; piece < GamePiece.PIECES; piece++) {
+      int[] masks = placements[piece];
+      double best = Double.NEGATIVE_INFINITY;
+
+      //Try every placement that fits
+      for (int i = 0; i < masks.length; i++) {
+        if ((board & masks[i]) == 0) {
+          best = Math.max(best, play(board, masks[i], crossed[piece][i], previous));
+        }
+      }
+
+      //A piece that does not fit ends the game and is worth nothing
+      if (best > Double.NEGATIVE_INFINITY) {
+        total += best;
+      }
+    }
+    return (float) (total / GamePiece.PIECES);
+  }
+
+  /**
+   * Work out the value of playing a piece on a grid
+   *
+   * @param board    the packed grid
+   * @param mask     the blocks the piece covers
+   * @param lines    the blocks of each line the piece crosses
+   * @param previous the value of each grid one piece later
+   * @return the points earned plus the value of the grid left
+   */
+  private static double play(int board, int mask, int[] lines, float[] previous) {
+    //Play the piece and clear the lines it fills
+    int filled = board | mask;
+    int cleared = 0;
+    int count = 0;
+    for (int line : lines) {
+      if ((filled & line) == line) {
+        cleared |= line;
+        count++;
+      }
+    }
+    return Game.lineScore(count, Integer.bitCount(cleared), 1) + previous[filled & ~cleared];
+  }
+
+  /**
+   * Solve a board from the command line and write its table. Options are given as --name=value:
+   * <ul>
+   *   <li>size: board size as COLSxROWS (default 5x5)</li>
+   *   <li>horizon: number of pieces to look ahead (default 8)</li>
+   *   <li>threads: number of threads (default all cores)</li>
+   *   <li>out: table file (default values-COLSxROWS.bin)</li>
+   * </ul>
+   *
+   * @param args command line options
+   * @throws IOException          if the table cannot be written
+   * @throws InterruptedException if interrupted while solving
+   */
+  public static void main(String[] args) throws IOException, InterruptedException {
+    int cols = 5;
+    int rows = 5;
+    int horizon = 8;
+    int threads = Runtime.getRuntime().availableProcessors();
+    Path out = null;
+
+    for (String arg : args) {
+      String[] option = arg.replaceFirst("^--", "").split("=", 2);
+      if (option.length != 2) {
+        throw new IllegalArgumentException("Options are given as --name=value: " + arg);
+      }
+      switch (option[0]) {
+        case "size" -> {
+          String[] size = option[1].split("x");
+          cols = Integer.parseInt(size[0]);
+          rows = Integer.parseInt(size[1]);
+        }
+        case "horizon" -> horizon = Integer.parseInt(option[1]);
+        case "threads" -> threads = Integer.parseInt(option[1]);
+        case "out" -> out = Path.of(option[1]);
+        default -> throw new IllegalArgumentException("No such option: " + option[0]);
+      }
+    }
+    if (out == null) {
+      out = Path.of("values-" + cols + "x" + rows + ".bin");
+    }
+
+    var solver = new RetrogradeSolver(cols, rows, threads);
+    long start = System.nanoTime();
+    float[] values = solver.solve(horizon);
+    ValueTable.write(out, cols, rows, horizon, values);
+    System.out.printf("Solved %dx%d looking %d pieces ahead in %.1f s, empty board worth %.1f%n",
+        cols, rows, horizon, (System.nanoTime() - start) / 1e9, values[0]);
+  }
+}
@@ -0,0 +1,298 @@
+package uk.ac.soton.comp1206.simulation;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import uk.ac.soton.comp1206.game.ExecutorScheduler;
+import uk.ac.soton.comp1206.game.GameScheduler;
+import uk.ac.soton.comp1206.game.WheelScheduler;
+
+/**
+ * The SchedulerBenchmark keeps the countdowns of a large number of games running on a
+ * WheelScheduler and on an ExecutorScheduler, each with a single thread, the way a server hosting
+ * the games would. Every game always has a countdown waiting. Moves come in at a steady rate from
+ * another thread, and each move cancels the countdown of a game and starts a new one, as
+ * Game.placeBlock does. A countdown that runs out starts the next one itself, as a lost life does.
+ * <p>
+ * It reports the moves made, the countdowns run out, how late they ran and the CPU time used by the
+ * scheduler's thread and by the thread making the moves. The CPU time needs the java.management
+ * module, see Management.
+ */
+public class SchedulerBenchmark {
+
+  /**
+   * Width of a bucket of the lateness histogram in nanoseconds
+   */
+  private static final long BUCKET_NANOS = 100_000;
+
+  /**
+   * Number of buckets of the lateness histogram, the last holding anything later
+   */
+  private static final int BUCKETS = 10_000;
+
+  /**
+   * The scheduler being measured
+   */
+  private final GameScheduler scheduler;
+
+  /**
+   * The countdown of each game
+   */
+  private final AtomicReferenceArray<Countdown> countdowns;
+
+  /**
+   * Shortest countdown in nanoseconds
+   */
+  private final long minDelay;
+
+  /**
+   * Longest countdown in nanoseconds
+   */
+  private final long maxDelay;
+
+  /**
+   * Number of countdowns run out
+   */
+  private final AtomicLong expired = new AtomicLong();
+
+  /**
+   * Number of countdowns run out by how late they ran, in buckets of BUCKET_NANOS
+   */
+  private final AtomicLongArray lateness = new AtomicLongArray(BUCKETS);
+
+  /**
+   * Create a new SchedulerBenchmark and start a countdown for every game
+   *
+   * @param scheduler the scheduler to measure
+   * @param games     number of games
+   * @param minDelay  shortest countdown in nanoseconds
+   * @param maxDelay  longest countdown in nanoseconds
+   * @param seed      seed of the lengths of the countdowns
+   */
+  private SchedulerBenchmark(GameScheduler scheduler, int games, long minDelay, long maxDelay,
+      long seed) {
+    this.scheduler = scheduler;
+    this.countdowns = new AtomicReferenceArray<>(games);
+    this.minDelay = minDelay;
+    this.maxDelay = maxDelay;
+
+    var random = new SplittableRandom(seed);
+    for (int game = 0; game < games; game++) {
+      countdowns.set(game, new Countdown(game, random.nextLong(minDelay, maxDelay + 1)));
+    }
+  }
+
+  /**
+   * Make moves at a steady rate, one game after another, for a time
+   *
+   * @param rate    moves per second
+   * @param seconds how long to make moves for
+   * @param seed    seed of the lengths of the countdowns
+   * @return number of moves made
+   */
+  private long move(long rate, double seconds, long seed) {
+    var random = new SplittableRandom(seed);
+    int games = countdowns.length();
+    long start = System.nanoTime();
+    long end = start + (long) (seconds * 1e9);
+    long moves = 0;
+    int game = 0;
+
+    while (true) {
+      //Wait until the next thousand moves are due
+      long due = start + (long) (moves * 1e9 / rate);
+      long now = System.nanoTime();
+      if (now >= end) {
+        return moves;
+      }
+      if (due > now) {
+        LockSupport.parkNanos(due - now);
+      }
+
+      for (int i = 0; i < 1000; i++) {
+        var next = new Countdown(game, random.nextLong(minDelay, maxDelay + 1));
+        countdowns.getAndSet(game, next).cancel();
+        game = game + 1 == games ? 0 : game + 1;
+      }
+      moves += 1000;
+    }
+  }
+
+  /**
+   * Get how late the given fraction of countdowns were at most
+   *
+   * @param fraction fraction of the countdowns, from 0 to 1
+   * @return lateness in milliseconds
+   */
+  private double latenessAt(double fraction) {
+    long total = expired.get();
+    long seen = 0;
+    for (int bucket = 0; bucket < BUCKETS; bucket++) {
+      seen += lateness.get(bucket);
+      if (seen >= fraction * total) {
+        return (bucket + 1) * BUCKET_NANOS / 1e6;
+      }
+    }
+    return BUCKETS * BUCKET_NANOS / 1e6;
+  }
+
+  /**
+   * The countdown of a game, which starts the next countdown of the game when it runs out unless
+   * the game has moved on in the meantime
+   */
+  private class Countdown implements Runnable {
+
+    /**
+     * Number of the game
+     */
+    private final int game;
+
+    /**
+     * When the countdown should run out, by System.nanoTime
+     */
+    private final long deadline;
+
+    /**
+     * The scheduled run of the countdown
+     */
+    private final GameScheduler.Timeout timeout;
+
+    /**
+     * Start a new countdown
+     *
+     * @param game  number of the game
+     * @param delay length of the countdown in nanoseconds
+     */
+    private Countdown(int game, long delay) {
+      this.game = game;
+      this.deadline = System.nanoTime() + delay;
+      this.timeout = scheduler.schedule(this, delay, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Record how late the countdown ran out and start the next one
+     */
+    @Override
+    public void run() {
+      long late = System.nanoTime() - deadline;
+      lateness.incrementAndGet((int) Math.min(late / BUCKET_NANOS, BUCKETS - 1));
+      expired.incrementAndGet();
+
+      var next = new Countdown(game,
+          ThreadLocalRandom.current().nextLong(minDelay, maxDelay + 1));
+      if (!countdowns.compareAndSet(game, this, next)) {
+        next.cancel();
+      }
+    }
+
+    /**
+     * Stop the countdown
+     */
+    private void cancel() {
+      timeout.cancel();
+    }
+  }
+
+  /**
+   * Run the benchmark from the command line. Options are given as --name=value:
+   * <ul>
+   *   <li>games: number of games with a countdown running (default 100000)</li>
+   *   <li>moves: moves made per second over all the games (default 200000)</li>
+   *   <li>seconds: how long to make moves for with each scheduler (default 10)</li>
+   *   <li>min-delay: shortest countdown in milliseconds (default 100)</li>
+   *   <li>max-delay: longest countdown in milliseconds (default 1000)</li>
+   *   <li>tick: tick of the wheel in microseconds (default 1000)</li>
+   *   <li>scheduler: wheel, executor or both (default both)</li>
+   *   <li>seed: seed of the lengths of the countdowns (default 1)</li>
+   * </ul>
+   *
+   * @param args command line options
+   */
+  public static void main(String[] args) {
+    int games = 100_000;
+    long rate = 200_000;
+    double seconds = 10;
+    long minDelay = 100;
+    long maxDelay = 1000;
+    long tick = 1000;
+    String which = "both";
+    long seed = 1;
+
+    for (String arg : args) {
+      String[] option = arg.replaceFirst("^--", "").split("=", 2);
+      if (option.length != 2) {
+        throw new IllegalArgumentException("Options are given as --name=value: " + arg);
+      }
+      switch (option[0]) {
+        case "games" -> games = Integer.parseInt(option[1]);
+        case "moves" -> rate = Long.parseLong(option[1]);
+        case "seconds" -> seconds = Double.parseDouble(option[1]);
+        case "min-delay" -> minDelay = Long.parseLong(option[1]);
+        case "max-delay" -> maxDelay = Long.parseLong(option[1]);
+        case "tick" -> tick = Long.parseLong(option[1]);
+        case "scheduler" -> which = option[1];
+        case "seed" -> seed = Long.parseLong(option[1]);
+        default -> throw new IllegalArgumentException("No such option: " + option[0]);
+      }
+    }
+
+    System.out.printf("%d games, %d moves/s, countdowns of %d-%d ms%n", games, rate, minDelay,
+        maxDelay);
+    if (!which.equals("executor")) {
+      var wheel = new WheelScheduler(tick, TimeUnit.MICROSECONDS);
+      run("Wheel, " + tick + " us tick", wheel, "Game wheel", games, rate, seconds,
+          minDelay, maxDelay, seed);
+      wheel.shutdown();
+    }
+    if (!which.equals("wheel")) {
+      var executor = new ExecutorScheduler(1);
+      run("Executor", executor, "Game timer", games, rate, seconds, minDelay, maxDelay, seed);
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Measure one scheduler and print the results
+   *
+   * @param name      name of the scheduler
+   * @param scheduler the scheduler
+   * @param threads   start of the names of the scheduler's threads
+   * @param games     number of games
+   * @param rate      moves per second
+   * @param seconds   how long to make moves for
+   * @param minDelay  shortest countdown in milliseconds
+   * @param maxDelay  longest countdown in milliseconds
+   * @param seed      seed of the lengths of the countdowns
+   */
+  private static void run(String name, GameScheduler scheduler, String threads, int games,
+      long rate, double seconds, long minDelay, long maxDelay, long seed) {
+    var benchmark = new SchedulerBenchmark(scheduler, games,
+        TimeUnit.MILLISECONDS.toNanos(minDelay), TimeUnit.MILLISECONDS.toNanos(maxDelay), seed);
+
+    boolean cpu = Management.PRESENT;
+    long schedulerCpu = cpu ? Management.threadCpuTime(threads) : 0;
+    long moverCpu = cpu ? Management.currentThreadCpuTime() : 0;
+    long start = System.nanoTime();
+    long moves = benchmark.move(rate, seconds, seed + 1);
+    double elapsed = (System.nanoTime() - start) / 1e9;
+    if (cpu) {
+      moverCpu = Management.currentThreadCpuTime() - moverCpu;
+      schedulerCpu = Management.threadCpuTime(threads) - schedulerCpu;
+    }
+
+    System.out.printf("%s: %d moves in %.2f s (%.0f/s), %d countdowns ran out%n", name, moves,
+        elapsed, moves / elapsed, benchmark.expired.get());
+    System.out.printf("  late by p50 %.1f ms, p99 %.1f ms, p99.9 %.1f ms%n",
+        benchmark.latenessAt(0.5), benchmark.latenessAt(0.99), benchmark.latenessAt(0.999));
+    if (cpu) {
+      System.out.printf("  scheduler thread %.1f%% of a core, moves %.0f ns each%n",
+          100.0 * schedulerCpu / (elapsed * 1e9), (double) moverCpu / moves);
+    } else {
+      System.out.println("  CPU time " + Management.MISSING);
+    }
+  }
+}
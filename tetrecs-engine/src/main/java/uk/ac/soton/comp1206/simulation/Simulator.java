@@ -0,0 +1,453 @@
+package uk.ac.soton.comp1206.simulation;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongFunction;
+import java.util.stream.IntStream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.ai.BatchEvaluator;
+import uk.ac.soton.comp1206.ai.BeamSearchPlayer;
+import uk.ac.soton.comp1206.ai.MonteCarloPlayer;
+import uk.ac.soton.comp1206.ai.Move;
+import uk.ac.soton.comp1206.ai.MovePolicy;
+import uk.ac.soton.comp1206.ai.RandomPolicy;
+import uk.ac.soton.comp1206.ai.TablePlayer;
+import uk.ac.soton.comp1206.ai.ValueTable;
+import uk.ac.soton.comp1206.game.Game;
+import uk.ac.soton.comp1206.game.VirtualClock;
+
+/**
+ * The Simulator plays many complete games without a UI, spread over a fork/join pool, and reports
+ * the distribution of their scores, levels, lengths and times. Used to tune the difficulty of the
+ * game.
+ * <p>
+ * Every game gets its own seed worked out from the seed of the run and the number of the game, so
+ * a run gives the same results on any number of threads. The moves are made by a MovePolicy.
+ * <p>
+ * Each game is timed by its own VirtualClock, so the countdown works as it does in a real game
+ * without the simulator ever waiting for it. When the policy gives up on a piece the clock is moved
+ * on to the deadline and the piece times out. Each move can also be given a time to think, which
+ * the clock is moved on by before the move is made, so a player too slow for the countdown of the
+ * higher levels loses lives to it.
+ * <p>
+ * The result of each game is written to the results file as a fixed size record at the position
+ * of its game number: the seed (long), score (int), level (int) and number of moves (int), big
+ * endian. The position before every move can also be streamed to a DatasetWriter.
+ */
+public class Simulator {
+
+  private static final Logger logger = LogManager.getLogger(Simulator.class);
+
+  /**
+   * The size in bytes of the record of one game in the results file
+   */
+  public static final int RECORD_BYTES = Long.BYTES + 3 * Integer.BYTES;
+
+  /**
+   * The number of games played by each task before its results are written
+   */
+  private static final int CHUNK = 256;
+
+  /**
+   * Number of columns of the board
+   */
+  private final int cols;
+
+  /**
+   * Number of rows of the board
+   */
+  private final int rows;
+
+  /**
+   * Number of games to play
+   */
+  private final int games;
+
+  /**
+   * Seed of the run
+   */
+  private final long seed;
+
+  /**
+   * Number of threads to play on
+   */
+  private final int threads;
+
+  /**
+   * Most moves a game can last before it is stopped
+   */
+  private final int maxMoves;
+
+  /**
+   * Makes the policy for a game from the seed of the game
+   */
+  private final LongFunction<MovePolicy> policies;
+
+  /**
+   * Where the positions of every game are written, or null to not write them
+   */
+  private DatasetWriter dataset;
+
+  /**
+   * The time each move takes in nanoseconds
+   */
+  private long thinkNanos = 0;
+
+  /**
+   * Final score of each game
+   */
+  private final int[] scores;
+
+  /**
+   * Final level of each game
+   */
+  private final int[] levels;
+
+  /**
+   * Number of moves of each game
+   */
+  private final int[] lengths;
+
+  /**
+   * How long each game took by its clock, in seconds
+   */
+  private final int[] times;
+
+  /**
+   * Create a new Simulator
+   *
+   * @param cols     number of columns of the board
+   * @param rows     number of rows of the board
+   * @param games    number of games to play
+   * @param seed     seed of the run
+   * @param threads  number of threads to play on
+   * @param maxMoves most moves a game can last before it is stopped
+   * @param policies makes the policy for a game from the seed of the game
+   */
+  public Simulator(int cols, int rows, int games, long seed, int threads, int maxMoves,
+      LongFunction<MovePolicy> policies) {
+    this.cols = cols;
+    this.rows = rows;
+    this.games = games;
+    this.seed = seed;
+    this.threads = threads;
+    this.maxMoves = maxMoves;
+    this.policies = policies;
+
+    scores = new int[games];
+    levels = new int[games];
+    lengths = new int[games];
+    times = new int[games];
+  }
+
+  /**
+   * Write the position before every move of every game to a dataset
+   *
+   * @param dataset where to write the positions, or null to not write them
+   */
+  public void setDataset(DatasetWriter dataset) {
+    this.dataset = dataset;
+  }
+
+  /**
+   * Set the time the player takes to make each move, used up from the countdown
+   *
+   * @param millis time per move in milliseconds
+   */
+  public void setThinkTime(long millis) {
+    this.thinkNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+  }
+
+  /**
+   * Play every game and write the results
+   *
+   * @param out results file, or null to not write one
+   * @throws IOException if the results cannot be written
+   */
+  public void run(Path out) throws IOException {
+    logger.info("Simulating {} games on {} threads", games, threads);
+    int chunks = (games + CHUNK - 1) / CHUNK;
+
+    try (FileChannel channel = out == null ? null : FileChannel.open(out, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      //Play each chunk of games as its own task
+      ForkJoinPool pool = new ForkJoinPool(threads);
+      try {
+        pool.submit(() -> IntStream.range(0, chunks).parallel().forEach(chunk -> {
+          try {
+            playChunk(chunk, channel);
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        })).get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Simulation interrupted", e);
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof UncheckedIOException cause) {
+          throw cause.getCause();
+        }
+        throw new IOException("Simulation failed", e.getCause());
+      } finally {
+        pool.shutdown();
+      }
+    }
+  }
+
+  /**
+   * Play one chunk of games and write their results
+   *
+   * @param chunk   number of the chunk
+   * @param channel results file, or null to not write one
+   * @throws IOException if the results cannot be written
+   */
+  private void playChunk(int chunk, FileChannel channel) throws IOException {
+    int first = chunk * CHUNK;
+    int last = Math.min(first + CHUNK, games);
+    ByteBuffer buffer = ByteBuffer.allocate((last - first) * RECORD_BYTES);
+
+    try (var positions = dataset == null ? null : dataset.newBlock()) {
+      for (int index = first; index < last; index++) {
+        long gameSeed = seedOf(index);
+        playGame(index, gameSeed, positions);
+
+        buffer.putLong(gameSeed);
+        buffer.putInt(scores[index]);
+        buffer.putInt(levels[index]);
+        buffer.putInt(lengths[index]);
+      }
+    }
+
+    //Each chunk has its own place in the file, so chunks can be written in any order
+    if (channel != null) {
+      buffer.flip();
+      long position = (long) first * RECORD_BYTES;
+      while (buffer.hasRemaining()) {
+        position += channel.write(buffer, position);
+      }
+    }
+  }
+
+  /**
+   * Work out the seed of a game from the seed of the run
+   *
+   * @param index number of the game
+   * @return seed of the game
+   */
+  private long seedOf(int index) {
+    //Mix the game number before it meets the run's seed. With seed + index, game i of one run would
+    //be game i - 1 of the run with the next seed
+    return new SplittableRandom(seed ^ mix(index)).nextLong();
+  }
+
+  /**
+   * Spread every bit of a number over the whole result, the last step of SplitMix64
+   *
+   * @param z the number
+   * @return the mixed number
+   */
+  private static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+
+  /**
+   * Play a complete game and record its result
+   *
+   * @param index     number of the game
+   * @param gameSeed  seed of the game
+   * @param positions where to write the position before each move, or null to not write them
+   * @throws IOException if the positions cannot be written
+   */
+  private void playGame(int index, long gameSeed, DatasetWriter.Block positions)
+      throws IOException {
+    //Time the game by its own clock, running the countdown on this thread as the clock moves
+    var clock = new VirtualClock();
+    Game game = new Game(cols, rows, gameSeed);
+    game.setClock(clock);
+    game.setScheduler(clock);
+    game.setOwner(Runnable::run);
+    MovePolicy policy = policies.apply(gameSeed);
+    game.start();
+
+    //Play until the game ends or lasts too long
+    int moves = 0;
+    while (!game.isOver() && moves < maxMoves) {
+      Move move = policy.chooseMove(game);
+      long board = positions == null ? 0 : BatchEvaluator.pack(game.getGrid());
+      int current = game.getCurrentPiece().getPiece();
+      int following = game.getFollowingPiece().getPiece();
+      int score = game.getScore();
+      if (move == null || thinkNanos >= clock.nextDue() - clock.nanoTime()) {
+        //Give up on the piece, or take too long over it, and lose a life when it times out
+        move = null;
+        clock.runNext();
+      } else {
+        clock.advance(thinkNanos, TimeUnit.NANOSECONDS);
+        move.apply(game);
+      }
+      moves++;
+      if (positions != null) {
+        positions.add(board, index, current, following, move, game.getScore() - score,
+            game.isOver() || moves >= maxMoves);
+      }
+    }
+    game.stop();
+
+    scores[index] = game.getScore();
+    levels[index] = game.getLevel();
+    lengths[index] = moves;
+    times[index] = (int) TimeUnit.NANOSECONDS.toSeconds(clock.nanoTime());
+  }
+
+  /**
+   * Print the distribution of the results
+   *
+   * @param seconds time the run took
+   */
+  public void printSummary(double seconds) {
+    System.out.printf("%d games in %.2f s: %.0f games/s, %.0f games/s per core%n", games, seconds,
+        games / seconds, games / seconds / threads);
+    printDistribution("score", scores);
+    printDistribution("level", levels);
+    printDistribution("length", lengths);
+    printDistribution("time", times);
+  }
+
+  /**
+   * Print the mean and percentiles of a result
+   *
+   * @param name   name of the result
+   * @param values value of the result for each game
+   */
+  private static void printDistribution(String name, int[] values) {
+    int[] sorted = values.clone();
+    Arrays.sort(sorted);
+    double mean = Arrays.stream(sorted).asLongStream().sum() / (double) sorted.length;
+    System.out.printf("%-6s mean %10.1f  min %7d  p10 %7d  p50 %7d  p90 %7d  p99 %7d  max %7d%n",
+        name, mean, sorted[0], percentile(sorted, 10), percentile(sorted, 50),
+        percentile(sorted, 90), percentile(sorted, 99), sorted[sorted.length - 1]);
+  }
+
+  /**
+   * Get a percentile of sorted values
+   *
+   * @param sorted     values in order
+   * @param percentile percentile to get
+   * @return the value at the percentile
+   */
+  private static int percentile(int[] sorted, int percentile) {
+    return sorted[(int) ((sorted.length - 1) * (long) percentile / 100)];
+  }
+
+  /**
+   * Make the policy factory of the given name
+   *
+   * @param name  name of the policy
+   * @param table value table file, used by the table policy
+   * @return makes a policy from the seed of a game
+   * @throws IOException if the value table cannot be loaded
+   */
+  static LongFunction<MovePolicy> policy(String name, Path table) throws IOException {
+    switch (name) {
+      case "random" -> {
+        return RandomPolicy::new;
+      }
+      case "beam" -> {
+        return gameSeed -> new BeamSearchPlayer(BeamSearchPlayer.DEFAULT_WIDTH);
+      }
+      case "mcts" -> {
+        return MonteCarloPlayer::new;
+      }
+      case "table" -> {
+        var values = ValueTable.load(table);
+        return gameSeed -> new TablePlayer(values);
+      }
+    }
+    throw new IllegalArgumentException("No such policy: " + name);
+  }
+
+  /**
+   * Run a simulation from the command line. Options are given as --name=value:
+   * <ul>
+   *   <li>games: number of games (default 10000)</li>
+   *   <li>seed: seed of the run (default 1)</li>
+   *   <li>policy: random, beam, mcts or table (default random)</li>
+   *   <li>table: value table file for the table policy (default values-5x5.bin)</li>
+   *   <li>threads: number of threads (default all cores)</li>
+   *   <li>size: board size as COLSxROWS (default 5x5)</li>
+   *   <li>max-moves: most moves a game can last (default 100000)</li>
+   *   <li>out: results file (default none)</li>
+   *   <li>dataset: file to write the position before every move to (default none)</li>
+   *   <li>compress: whether to compress the dataset, true or false (default false)</li>
+   *   <li>think: time each move takes in milliseconds, used up from the countdown (default 0)</li>
+   * </ul>
+   *
+   * @param args command line options
+   * @throws IOException if the results cannot be written
+   */
+  public static void main(String[] args) throws IOException {
+    int games = 10000;
+    long seed = 1;
+    String policy = "random";
+    int threads = Runtime.getRuntime().availableProcessors();
+    int cols = 5;
+    int rows = 5;
+    int maxMoves = 100000;
+    Path out = null;
+    Path table = Path.of("values-5x5.bin");
+    Path dataset = null;
+    boolean compress = false;
+    long think = 0;
+
+    for (String arg : args) {
+      String[] option = arg.replaceFirst("^--", "").split("=", 2);
+      if (option.length != 2) {
+        throw new IllegalArgumentException("Options are given as --name=value: " + arg);
+      }
+      switch (option[0]) {
+        case "games" -> games = Integer.parseInt(option[1]);
+        case "seed" -> seed = Long.parseLong(option[1]);
+        case "policy" -> policy = option[1];
+        case "threads" -> threads = Integer.parseInt(option[1]);
+        case "size" -> {
+          String[] size = option[1].split("x");
+          cols = Integer.parseInt(size[0]);
+          rows = Integer.parseInt(size[1]);
+        }
+        case "max-moves" -> maxMoves = Integer.parseInt(option[1]);
+        case "out" -> out = Path.of(option[1]);
+        case "table" -> table = Path.of(option[1]);
+        case "dataset" -> dataset = Path.of(option[1]);
+        case "compress" -> compress = Boolean.parseBoolean(option[1]);
+        case "think" -> think = Long.parseLong(option[1]);
+        default -> throw new IllegalArgumentException("No such option: " + option[0]);
+      }
+    }
+
+    var simulator = new Simulator(cols, rows, games, seed, threads, maxMoves,
+        policy(policy, table));
+    try (var writer = dataset == null ? null
+        : new DatasetWriter(dataset, cols, rows, compress)) {
+      simulator.setDataset(writer);
+      simulator.setThinkTime(think);
+      long start = System.nanoTime();
+      simulator.run(out);
+      simulator.printSummary((System.nanoTime() - start) / 1e9);
+      if (writer != null) {
+        System.out.printf("%d positions written to %s%n", writer.getCount(), dataset);
+      }
+    }
+  }
+}